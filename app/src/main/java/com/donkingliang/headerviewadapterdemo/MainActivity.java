@@ -40,12 +40,10 @@ public class MainActivity extends AppCompatActivity {
         LinearAdapter adapter = new LinearAdapter(this);
         HeaderViewAdapter headerViewAdapter = new HeaderViewAdapter(adapter);
         rvList.setLayoutManager(new LinearLayoutManager(this));
-        View hv1 = LayoutInflater.from(this).inflate(R.layout.layout_header, rvList, false);
-        View hv2 = LayoutInflater.from(this).inflate(R.layout.layout_header_view, rvList, false);
-        View fv = LayoutInflater.from(this).inflate(R.layout.layout_footer_view, rvList, false);
-        headerViewAdapter.addHeaderView(hv1);
-        headerViewAdapter.addHeaderView(hv2);
-        headerViewAdapter.addFooterView(fv);
+        //延迟创建HeaderView和FooterView，在第一次需要显示的时候才inflate。
+        headerViewAdapter.addHeaderView(new HeaderViewAdapter.LayoutViewCreator(R.layout.layout_header), null);
+        headerViewAdapter.addHeaderView(new HeaderViewAdapter.LayoutViewCreator(R.layout.layout_header_view), null);
+        headerViewAdapter.addFooterView(new HeaderViewAdapter.LayoutViewCreator(R.layout.layout_footer_view), null);
         rvList.setAdapter(headerViewAdapter);
     }
 
@@ -69,8 +67,11 @@ public class MainActivity extends AppCompatActivity {
         View hv1 = LayoutInflater.from(this).inflate(R.layout.layout_header, rvList, false);
         View hv2 = LayoutInflater.from(this).inflate(R.layout.layout_header_view, rvList, false);
         View fv = LayoutInflater.from(this).inflate(R.layout.layout_footer_view, rvList, false);
+        //批量添加，只发出一批合并后的通知。
+        rvList.beginUpdates();
         rvList.addHeaderView(hv1);
         rvList.addHeaderView(hv2);
         rvList.addFooterView(fv);
+        rvList.endUpdates();
     }
 }
@@ -0,0 +1,70 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Depiction: 在后台线程创建HeaderView和FooterView，创建完成后回到主线程回调。
+ * 如果在后台线程创建失败(比如布局里的View需要在主线程创建)，则回到主线程重新创建。
+ */
+final class AsyncFixedViewInflater {
+
+    //所有HeaderViewAdapter共用的后台线程，第一次使用时才创建。
+    private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "HeaderViewAdapter-inflater");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private AsyncFixedViewInflater() {
+    }
+
+    interface Callback {
+        /**
+         * 在主线程回调
+         *
+         * @param view 创建好的View
+         */
+        void onViewCreated(View view);
+    }
+
+    /**
+     * 在后台线程通过creator创建View，完成后在主线程回调callback。
+     *
+     * @param parent   用于生成View的LayoutParams，不会被修改
+     * @param creator  需要能在后台线程调用
+     * @param callback
+     */
+    static void create(final ViewGroup parent, final HeaderViewAdapter.FixedViewCreator creator,
+                       final Callback callback) {
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                View view;
+                try {
+                    view = creator.onCreateView(parent);
+                } catch (RuntimeException e) {
+                    view = null;
+                }
+                final View result = view;
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onViewCreated(result != null ? result : creator.onCreateView(parent));
+                    }
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.animation.ValueAnimator;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Depiction: 在主线程的下一帧执行一个Runnable。
+ * <p>
+ * Android 4.1及以上通过Choreographer在下一帧开始时执行；更低的版本没有Choreographer，
+ * 改为通过Handler延迟一帧的时间执行。Choreographer相关的类只在需要时才加载，不影响低版本加载HeaderViewAdapter。
+ * 只能在主线程调用。
+ */
+final class FrameTask {
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final Runnable mRunnable;
+
+    //Android 4.1及以上使用的Choreographer.FrameCallback，第一次安排时创建。
+    private Object mFrameCallback;
+
+    FrameTask(Runnable runnable) {
+        mRunnable = runnable;
+    }
+
+    /**
+     * 安排在下一帧执行
+     */
+    void post() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (mFrameCallback == null) {
+                mFrameCallback = Api16Impl.createFrameCallback(mRunnable);
+            }
+            Api16Impl.postFrameCallback(mFrameCallback);
+        } else {
+            MAIN_HANDLER.postDelayed(mRunnable, ValueAnimator.getFrameDelay());
+        }
+    }
+
+    /**
+     * 取消还没有执行的安排
+     */
+    void cancel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (mFrameCallback != null) {
+                Api16Impl.removeFrameCallback(mFrameCallback);
+            }
+        } else {
+            MAIN_HANDLER.removeCallbacks(mRunnable);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class Api16Impl {
+
+        static Object createFrameCallback(final Runnable runnable) {
+            return new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    runnable.run();
+                }
+            };
+        }
+
+        static void postFrameCallback(Object callback) {
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+        }
+
+        static void removeFrameCallback(Object callback) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) callback);
+        }
+    }
+}
@@ -1,12 +1,33 @@
 package com.donkingliang.headerviewadapter.adapter;
 
+import androidx.annotation.LayoutRes;
+import androidx.core.os.TraceCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Depiction: HeaderViewAdapter是对已有的RecyclerView.Adapter进行包装，
@@ -20,6 +41,44 @@ import java.util.List;
  */
 public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
+    //默认的加载更多预加载距离。
+    private static final int DEFAULT_LOAD_MORE_PREFETCH_DISTANCE = 2;
+
+    //RecyclerView默认缓存的已移出屏幕的ViewHolder的个数。
+    private static final int DEFAULT_ITEM_VIEW_CACHE_SIZE = 2;
+
+    //onCreateViewHolder和onBindViewHolder的Trace名称。
+    private static final String TRACE_CREATE = "HeaderViewAdapter#onCreateViewHolder";
+    private static final String TRACE_BIND = "HeaderViewAdapter#onBindViewHolder";
+
+    //通知HeaderView或FooterView局部更新时，没有指定payload则使用这个默认的payload。
+    public static final Object PAYLOAD_FIXED_VIEW = new Object();
+
+    //加载更多的状态：空闲、正在加载、加载失败、没有更多数据。
+    public static final int LOAD_MORE_STATE_IDLE = 0;
+    public static final int LOAD_MORE_STATE_LOADING = 1;
+    public static final int LOAD_MORE_STATE_ERROR = 2;
+    public static final int LOAD_MORE_STATE_END = 3;
+
+    //加载更多的FooterView状态变化时使用的payload。
+    public static final Object PAYLOAD_LOAD_MORE_STATE = new Object();
+
+    //swapAdapter(adapter, false)时使用的payload，让ItemAnimator直接复用已有的ViewHolder，不会交给被包装的Adapter。
+    private static final Object PAYLOAD_ADAPTER_SWAPPED = new Object();
+
+    //共享RecycledViewPool时，每个HeaderViewAdapter在保留区间里分到的viewType个数。
+    //用完以后会回收已经删除的HeaderView和FooterView的viewType，所以只需要大于同时存在的HeaderView和FooterView的个数。
+    public static final int SHARED_POOL_VIEW_TYPE_COUNT = 0x10000;
+
+    //用于把其他线程提交的修改切换到主线程。
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    //HeaderView和FooterView默认使用的viewType保留区间的起始值。
+    public static final int DEFAULT_FIXED_VIEW_TYPE_START = Integer.MIN_VALUE;
+
+    //HeaderView和FooterView默认使用的viewType保留区间的大小。
+    public static final int DEFAULT_FIXED_VIEW_TYPE_COUNT = 0x40000000;
+
     //被包装的Adapter。
     private RecyclerView.Adapter mAdapter;
 
@@ -29,16 +88,244 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     //用于存放FooterView
     private final List<FixedViewInfo> mFooterViewInfos = new ArrayList<>();
 
+    //正在显示的HeaderView和FooterView，由mHeaderViewInfos和mFooterViewInfos中没有被隐藏的项按顺序组成。
+    //列表的position只跟它们有关。
+    private final List<FixedViewInfo> mVisibleHeaderViewInfos = new ArrayList<>();
+    private final List<FixedViewInfo> mVisibleFooterViewInfos = new ArrayList<>();
+
+    //viewType到HeaderView或FooterView的索引，跟mHeaderViewInfos和mFooterViewInfos保持同步。
+    private final SparseArray<FixedViewInfo> mFixedViewInfos = new SparseArray<>();
+
+    //HeaderView和FooterView的viewType保留区间：[mFixedViewTypeStart, mFixedViewTypeStart + mFixedViewTypeCount)
+    private int mFixedViewTypeStart = DEFAULT_FIXED_VIEW_TYPE_START;
+    private int mFixedViewTypeCount = DEFAULT_FIXED_VIEW_TYPE_COUNT;
+
+    //保留区间内已经分配出去的viewType的个数，下一个分配的viewType是mFixedViewTypeStart + mAllocatedViewTypeCount。
+    private int mAllocatedViewTypeCount;
+
+    //保留区间用完以后，下一个尝试回收的viewType相对mFixedViewTypeStart的偏移。
+    private int mReclaimViewTypeOffset;
+
+    //是否跟其他列表共享RecycledViewPool。
+    private boolean mRecycledViewPoolShared;
+
+    //共享RecycledViewPool时分到的viewType命名空间，没有共享时为-1。
+    private int mViewTypeNamespace = -1;
+
+    //被包装的Adapter声明的viewType范围，用于检查是否跟保留区间冲突。
+    private boolean mHasAdapterViewTypeRange;
+    private int mAdapterMinViewType;
+    private int mAdapterMaxViewType;
+
+    //被包装的Adapter的列表项个数的缓存，由mObserver增量更新，避免每次判断position的类型都调用mAdapter.getItemCount()。
+    //整个列表的划分是：[0, mVisibleHeaderViewInfos.size())是HeaderView，[getFooterStart(), getItemCount())是FooterView。
+    private int mDataCount;
+
+    //普通列表项的ViewHolder和最近一次绑定它的Adapter。替换Adapter以后，旧的ViewHolder的回调仍然交给旧的Adapter处理。
+    //ViewHolder被回收时不删除，再次绑定时只覆盖已有的记录，滑动时不会分配新的对象；
+    //旧的Adapter在它的ViewHolder都被新的Adapter重新绑定或者被回收掉以后就不再被引用。
+    private final Map<RecyclerView.ViewHolder, RecyclerView.Adapter> mBoundAdapters = new WeakHashMap<>();
+
+    //当前绑定的RecyclerView。
+    private RecyclerView mRecyclerView;
+
+    //正在显示的吸顶HeaderView的position，从小到大排列。跟mVisibleHeaderViewInfos一起更新。
+    private int[] mStickyHeaderPositions = new int[0];
+
+    //绘制吸顶HeaderView的ItemDecoration，第一次设置吸顶的HeaderView时创建。
+    private StickyHeaderDecoration mStickyHeaderDecoration;
+
+    //是否在系统内存不足时释放不在屏幕上的HeaderView和FooterView。
+    private boolean mTrimMemoryEnabled;
+
+    //注册了内存回调的Context，没有注册时为null。
+    private Context mTrimMemoryContext;
+
+    //释放HeaderView和FooterView后的回调。
+    private OnFixedViewsTrimmedListener mOnFixedViewsTrimmedListener;
+
+    //RecyclerView的缓存大小。RecyclerView没有提供获取的方法，释放内存时清空缓存以后用它恢复。
+    private int mItemViewCacheSize = DEFAULT_ITEM_VIEW_CACHE_SIZE;
+
+    //是否正在为释放内存临时清空RecyclerView的缓存。
+    private boolean mFlushingItemViewCache;
+
+    private final ComponentCallbacks2 mTrimMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    //批量更新期间待提交的HeaderView和FooterView，没有批量更新时为null。
+    private List<FixedViewInfo> mPendingHeaderViewInfos;
+    private List<FixedViewInfo> mPendingFooterViewInfos;
+
+    //beginUpdates()的嵌套层数。
+    private int mBatchDepth;
+
+    //是否把修改合并到下一帧。
+    private boolean mCoalesceUpdatesToFrame;
+
+    //是否已经安排在下一帧提交修改。
+    private boolean mFrameUpdateScheduled;
+
+    //在下一帧开始时提交合并的修改。
+    private final FrameTask mFrameTask = new FrameTask(new Runnable() {
+        @Override
+        public void run() {
+            mFrameUpdateScheduled = false;
+            if (mBatchDepth == 0) {
+                commitPendingUpdates();
+            }
+        }
+    });
+
+    //其他线程通过postTransaction()提交的修改，在主线程的下一帧统一执行。
+    private final ConcurrentLinkedQueue<Transaction> mQueuedTransactions = new ConcurrentLinkedQueue<>();
+
+    //是否已经安排了执行mQueuedTransactions，保证同一时间只安排一次。
+    private final AtomicBoolean mQueuedTransactionsScheduled = new AtomicBoolean();
+
+    private final FrameTask mQueuedTransactionsTask = new FrameTask(new Runnable() {
+        @Override
+        public void run() {
+            runQueuedTransactions();
+        }
+    });
+
+    //FrameTask只能在主线程使用，所以先切换到主线程再安排到下一帧。
+    private final Runnable mScheduleQueuedTransactions = new Runnable() {
+        @Override
+        public void run() {
+            mQueuedTransactionsTask.post();
+        }
+    };
+
+    //是否检查同步修改HeaderView和FooterView的方法是否在主线程调用。为null时只在debuggable的应用中检查。
+    private Boolean mThreadCheckEnabled;
+
+    //应用是否是debuggable的。从构造时传入的Context、添加的View或者绑定的RecyclerView中读取，
+    //所以在绑定RecyclerView之前添加HeaderView和FooterView也能检查。
+    private boolean mDebuggable;
+
+    //运行数据统计，没有开启时为null。
+    private HeaderViewAdapterMetrics mMetrics;
+
+    //运行数据的实时回调。
+    private HeaderViewAdapterMetrics.Listener mMetricsListener;
+
+    //是否在创建和绑定ViewHolder时添加Trace。
+    private boolean mTraceEnabled;
+
+    //开启统计后注册到HeaderViewAdapter自己身上，用于统计发出的通知。
+    private final RecyclerView.AdapterDataObserver mMetricsObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            recordNotify(true);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            recordNotify(false);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            recordNotify(false);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            recordNotify(false);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            recordNotify(false);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            recordNotify(false);
+        }
+
+        private void recordNotify(boolean full) {
+            if (mMetrics != null) {
+                mMetrics.recordNotify(full);
+                if (mMetricsListener != null) {
+                    mMetricsListener.onNotify(full);
+                }
+            }
+        }
+    };
+
+    //FooterView的预创建距离，小于0表示关闭。
+    private int mFooterPrefetchDistance = -1;
+
+    //列表滑动时检查是否需要预创建FooterView。
+    private final RecyclerView.OnScrollListener mFooterPrefetchListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            prefetchFootersIfNeeded(recyclerView);
+        }
+    };
+
+    //加载更多的FooterView和回调，没有设置时为null。
+    private LoadMoreFooter mLoadMoreFooter;
+    private OnLoadMoreListener mOnLoadMoreListener;
+
+    //当前的加载更多状态。
+    private int mLoadMoreState = LOAD_MORE_STATE_IDLE;
+
+    //距离最后一个数据项还有多少项时开始加载更多。
+    private int mLoadMorePrefetchDistance = DEFAULT_LOAD_MORE_PREFETCH_DISTANCE;
+
+    //是否已经post了加载更多的请求，避免同一帧里重复请求。
+    private boolean mLoadMorePosted;
+
+    //在onBindViewHolder中不能修改数据，所以加载更多的请求post到下一次消息循环执行。
+    private final Runnable mLoadMoreRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mLoadMorePosted = false;
+            requestLoadMore();
+        }
+    };
+
+    //把加载更多的状态绑定到FooterView上。
+    private final FixedViewBinder mLoadMoreBinder = new FixedViewBinder() {
+        @Override
+        public void onBindView(View view, List<Object> payloads) {
+            if (mLoadMoreFooter != null) {
+                mLoadMoreFooter.onBindState(view, mLoadMoreState);
+            }
+            //FooterView已经显示出来了，说明数据已经到底。
+            postLoadMoreIfNeeded();
+        }
+    };
+
     //用于监听被包装的Adapter的数据变化的监听器。它将被包装的Adapter的数据变化映射成HeaderViewAdapter的变化。
     private RecyclerView.AdapterDataObserver mObserver = new RecyclerView.AdapterDataObserver() {
         @Override
         public void onChanged() {
+            syncDataCount();
+            syncStateRestorationPolicy();
             notifyDataSetChanged();
         }
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount) {
-            super.onItemRangeChanged(positionStart, itemCount);
+            notifyItemRangeChanged(getHeadersCount() + positionStart, itemCount);
         }
 
         @Override
@@ -48,34 +335,94 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
+            mDataCount += itemCount;
+            syncStateRestorationPolicy();
             notifyItemRangeInserted(getHeadersCount() + positionStart, itemCount);
         }
 
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mDataCount -= itemCount;
+            syncStateRestorationPolicy();
             notifyItemRangeRemoved(getHeadersCount() + positionStart, itemCount);
         }
 
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-            notifyItemMoved(getHeadersCount() + fromPosition, getHeadersCount() + toPosition);
+            notifyRangeMoved(HeaderViewAdapter.this, getHeadersCount() + fromPosition,
+                    getHeadersCount() + toPosition, itemCount);
+        }
+
+        @Override
+        public void onStateRestorationPolicyChanged() {
+            //让HeaderViewAdapter跟随被包装的Adapter的状态恢复策略。
+            syncStateRestorationPolicy();
         }
     };
 
     public HeaderViewAdapter(RecyclerView.Adapter adapter) {
+        this(null, adapter);
+    }
+
+    /**
+     * @param context 用于判断应用是否是debuggable的，决定默认是否检查修改HeaderView和FooterView的线程，可以为null
+     * @param adapter 被包装的Adapter
+     * @see #setThreadCheckEnabled(boolean)
+     */
+    public HeaderViewAdapter(Context context, RecyclerView.Adapter adapter) {
+        updateDebuggable(context);
         mAdapter = adapter;
         if (mAdapter != null) {
             //注册mAdapter的数据变化监听
             mAdapter.registerAdapterDataObserver(mObserver);
+            syncStableIds();
         }
+        syncDataCount();
+        syncStateRestorationPolicy();
     }
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        //没有开启统计和Trace时直接创建，不产生额外的开销。
+        if (mMetrics == null && !mTraceEnabled) {
+            return createViewHolderInternal(parent, viewType);
+        }
+
+        beginTrace(TRACE_CREATE);
+        long start = System.nanoTime();
+        try {
+            return createViewHolderInternal(parent, viewType);
+        } finally {
+            long duration = System.nanoTime() - start;
+            endTrace();
+            if (mMetrics != null) {
+                mMetrics.recordCreate(viewType, duration);
+                if (mMetricsListener != null) {
+                    mMetricsListener.onViewHolderCreated(viewType, duration);
+                }
+            }
+        }
+    }
+
+    private RecyclerView.ViewHolder createViewHolderInternal(ViewGroup parent, int viewType) {
         // 根据viewType查找对应的HeaderView 或 FooterView。如果没有找到则表示该viewType是普通的列表项。
-        View view = findViewForInfos(viewType);
-        if (view != null) {
-            return new ViewHolder(view);
+        FixedViewInfo info = findViewInfo(viewType);
+        if (info != null) {
+            if (info.view == null) {
+                //延迟创建的HeaderView 或 FooterView，在第一次需要显示的时候才创建。
+                info.view = info.creator.onCreateView(parent);
+            }
+            info.inUse = true;
+            ViewHolder holder = new ViewHolder(info.view);
+            if (parent instanceof RecyclerView) {
+                RecyclerView recyclerView = (RecyclerView) parent;
+                applyFullSpanIfNeeded(holder, recyclerView.getLayoutManager());
+                //RecycledViewPool可能在绑定RecyclerView之后才被替换，在这里对当前使用的RecycledViewPool再设置一次。
+                if (shouldKeepOutOfPool(info)) {
+                    recyclerView.getRecycledViewPool().setMaxRecycledViews(viewType, 0);
+                }
+            }
+            return holder;
         } else {
             //交由mAdapter处理。
             return mAdapter.onCreateViewHolder(parent, viewType);
@@ -84,34 +431,83 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-        // 如果是HeaderView 或者是 FooterView则不绑定数据。
-        // 因为HeaderView和FooterView是由外部传进来的，它们不由列表去更新。
+        //统一由带payloads的onBindViewHolder处理。
+        onBindViewHolder(holder, position, Collections.emptyList());
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        //没有开启统计和Trace时直接绑定，不产生额外的开销。
+        if (mMetrics == null && !mTraceEnabled) {
+            bindViewHolderInternal(holder, position, payloads);
+            return;
+        }
+
+        beginTrace(TRACE_BIND);
+        long start = System.nanoTime();
+        try {
+            bindViewHolderInternal(holder, position, payloads);
+        } finally {
+            long duration = System.nanoTime() - start;
+            endTrace();
+            if (mMetrics != null) {
+                int viewType = holder.getItemViewType();
+                mMetrics.recordBind(viewType, duration);
+                if (mMetricsListener != null) {
+                    mMetricsListener.onViewHolderBound(viewType, duration);
+                }
+            }
+        }
+    }
+
+    private void bindViewHolderInternal(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        // HeaderView 和 FooterView只有设置了FixedViewBinder才会回调，用于局部更新。
         if (isHeader(position) || isFooter(position)) {
+            //RecyclerView的LayoutManager可能在ViewHolder创建之后被替换了。
+            if (holder instanceof ViewHolder && mRecyclerView != null) {
+                applyFullSpanIfNeeded((ViewHolder) holder, mRecyclerView.getLayoutManager());
+            }
+            FixedViewInfo info = mFixedViewInfos.get(holder.getItemViewType());
+            if (info != null && info.binder != null) {
+                info.binder.onBindView(holder.itemView, payloads);
+            }
+            if (info != null && info.sticky && mStickyHeaderDecoration != null) {
+                //吸顶HeaderView的内容可能变了，重新绘制缓存。
+                mStickyHeaderDecoration.invalidate();
+            }
             return;
         }
 
-        //将列表实际的position调整成mAdapter对应的position。
-        //交由mAdapter处理。
+        //替换了Adapter以后，之前的payloads对新的Adapter都没有意义，需要完整绑定。
+        if (!payloads.isEmpty() && payloads.contains(PAYLOAD_ADAPTER_SWAPPED)) {
+            payloads = Collections.emptyList();
+        }
+
+        //将列表实际的position调整成mAdapter对应的position，并把payloads一起交由mAdapter处理。
         int adjPosition = position - getHeadersCount();
-        mAdapter.onBindViewHolder(holder, adjPosition);
+        mAdapter.onBindViewHolder(holder, adjPosition, payloads);
+        mBoundAdapters.put(holder, mAdapter);
+
+        if (adjPosition >= mDataCount - 1 - mLoadMorePrefetchDistance) {
+            postLoadMoreIfNeeded();
+        }
     }
 
     @Override
     public int getItemCount() {
-        return mHeaderViewInfos.size() + mFooterViewInfos.size()
-                + (mAdapter == null ? 0 : mAdapter.getItemCount());
+        return mVisibleHeaderViewInfos.size() + mDataCount + mVisibleFooterViewInfos.size();
     }
 
     @Override
     public int getItemViewType(int position) {
         //如果当前item是HeaderView，则返回HeaderView对应的itemViewType。
         if (isHeader(position)) {
-            return mHeaderViewInfos.get(position).itemViewType;
+            return mVisibleHeaderViewInfos.get(position).itemViewType;
         }
 
         //如果当前item是HeaderView，则返回HeaderView对应的itemViewType。
         if (isFooter(position)) {
-            return mFooterViewInfos.get(position - mHeaderViewInfos.size() - mAdapter.getItemCount()).itemViewType;
+            return mVisibleFooterViewInfos.get(position - getFooterStart()).itemViewType;
         }
 
         //将列表实际的position调整成mAdapter对应的position。
@@ -120,22 +516,187 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         return mAdapter.getItemViewType(adjPosition);
     }
 
+    @Override
+    public long getItemId(int position) {
+        //HeaderView 和 FooterView使用独立的ID区间。
+        if (isHeader(position) || isFooter(position)) {
+            return getFixedItemId(getItemViewType(position));
+        }
+
+        //将列表实际的position调整成mAdapter对应的position。
+        //交由mAdapter处理。
+        int adjPosition = position - getHeadersCount();
+        return mAdapter.getItemId(adjPosition);
+    }
+
+    /**
+     * 根据HeaderView或FooterView的viewType生成它的ID。ID落在从Long.MIN_VALUE开始的2^32个数里，每个viewType对应一个ID。
+     * RecyclerView在匹配stable ID时还会比较viewType，而HeaderView和FooterView的viewType是唯一的，
+     * 所以它们的ID不会跟被包装的Adapter的ID混淆。
+     *
+     * @param viewType
+     * @return
+     */
+    private static long getFixedItemId(int viewType) {
+        return Long.MIN_VALUE + ((long) viewType - Integer.MIN_VALUE);
+    }
+
+    /**
+     * 让HeaderViewAdapter的hasStableIds跟被包装的Adapter保持一致。
+     * RecyclerView只允许在没有注册观察者(也就是还没有设置给RecyclerView)的时候修改hasStableIds，
+     * 所以已经设置给RecyclerView后再替换被包装的Adapter，hasStableIds会保持不变。
+     */
+    private void syncStableIds() {
+        if (hasStableIds() == mAdapter.hasStableIds()) {
+            return;
+        }
+        //统计通知次数的监听是HeaderViewAdapter自己注册的，不应该影响hasStableIds的设置。
+        boolean metricsObserverRegistered = mMetrics != null;
+        if (metricsObserverRegistered) {
+            unregisterAdapterDataObserver(mMetricsObserver);
+        }
+        if (!hasObservers()) {
+            setHasStableIds(mAdapter.hasStableIds());
+        }
+        if (metricsObserverRegistered) {
+            registerAdapterDataObserver(mMetricsObserver);
+        }
+    }
+
+    /**
+     * 开启或关闭运行数据统计。开启后会记录每个viewType的onCreateViewHolder和onBindViewHolder的次数和耗时分布、
+     * 发出的通知次数和onFailedToRecycleView的次数，可以通过{@link #getMetrics()}获取。关闭时不产生任何额外开销。
+     *
+     * @param enabled 默认关闭
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (mMetrics != null)) {
+            return;
+        }
+        if (enabled) {
+            mMetrics = new HeaderViewAdapterMetrics();
+            registerAdapterDataObserver(mMetricsObserver);
+        } else {
+            unregisterAdapterDataObserver(mMetricsObserver);
+            mMetrics = null;
+        }
+    }
+
+    /**
+     * 获取运行数据统计
+     *
+     * @return 没有开启统计时返回null
+     */
+    public HeaderViewAdapterMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 设置运行数据的实时回调，只在开启统计时回调。
+     *
+     * @param listener
+     */
+    public void setMetricsListener(HeaderViewAdapterMetrics.Listener listener) {
+        mMetricsListener = listener;
+    }
+
+    /**
+     * 设置是否在onCreateViewHolder和onBindViewHolder时添加{@link TraceCompat}，方便在Systrace或Perfetto中查看。
+     * 只在Android 4.3及以上生效。
+     *
+     * @param enabled 默认关闭
+     */
+    public void setTraceEnabled(boolean enabled) {
+        mTraceEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    private void beginTrace(String sectionName) {
+        if (mTraceEnabled) {
+            TraceCompat.beginSection(sectionName);
+        }
+    }
+
+    private void endTrace() {
+        if (mTraceEnabled) {
+            TraceCompat.endSection();
+        }
+    }
+
     /**
-     * 设置被包装的adapter。同一个adapter对象不能设置多次。
+     * 设置被包装的adapter。会注销之前的adapter的数据变化监听，并刷新整个列表。
      *
      * @param adapter
      */
     public void setAdapter(RecyclerView.Adapter adapter) {
+        replaceAdapter(adapter);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 替换被包装的adapter，但是只对普通列表项的范围发出通知，HeaderView和FooterView的ViewHolder
+     * 以及RecycledViewPool都不受影响。作用跟{@link RecyclerView#swapAdapter(RecyclerView.Adapter, boolean)}一样。
+     * 已经设置给RecyclerView以后，hasStableIds不会跟随新的adapter改变。
+     *
+     * @param adapter
+     * @param removeAndRecycleExistingViews 为true时，旧的列表项会被删除并回收到RecycledViewPool，
+     *                                      新的列表项重新插入；为false时，已有的ViewHolder会直接用新的adapter重新绑定，
+     *                                      不会创建新的ViewHolder做变化动画，新的adapter收到的payloads为空。
+     *                                      这要求两个adapter的viewType和ViewHolder是兼容的。
+     */
+    public void swapAdapter(RecyclerView.Adapter adapter, boolean removeAndRecycleExistingViews) {
+        int oldCount = mDataCount;
+        replaceAdapter(adapter);
+        int newCount = mDataCount;
+        int start = getHeadersCount();
+        if (removeAndRecycleExistingViews) {
+            if (oldCount > 0) {
+                notifyItemRangeRemoved(start, oldCount);
+            }
+            if (newCount > 0) {
+                notifyItemRangeInserted(start, newCount);
+            }
+        } else {
+            int changedCount = Math.min(oldCount, newCount);
+            if (changedCount > 0) {
+                //带上payload，ItemAnimator才会直接用已有的ViewHolder重新绑定，而不是创建新的ViewHolder做变化动画。
+                notifyItemRangeChanged(start, changedCount, PAYLOAD_ADAPTER_SWAPPED);
+            }
+            if (newCount > oldCount) {
+                notifyItemRangeInserted(start + oldCount, newCount - oldCount);
+            } else if (oldCount > newCount) {
+                notifyItemRangeRemoved(start + newCount, oldCount - newCount);
+            }
+        }
+    }
+
+    /**
+     * 替换被包装的adapter，并处理数据变化监听和RecyclerView的绑定，不发出通知。
+     *
+     * @param adapter
+     */
+    private void replaceAdapter(RecyclerView.Adapter adapter) {
         if (adapter instanceof HeaderViewAdapter) {
             //被包装的adapter不能是HeaderViewAdapter。
             throw new IllegalArgumentException("Cannot wrap a HeaderViewAdapter");
         }
+        if (mAdapter != null) {
+            //注销旧的adapter的数据变化监听，避免它继续通知HeaderViewAdapter，也避免它被一直引用。
+            mAdapter.unregisterAdapterDataObserver(mObserver);
+            if (mRecyclerView != null) {
+                mAdapter.onDetachedFromRecyclerView(mRecyclerView);
+            }
+        }
         mAdapter = adapter;
         if (mAdapter != null) {
             //注册mAdapter的数据变化监听
             mAdapter.registerAdapterDataObserver(mObserver);
+            syncStableIds();
+            if (mRecyclerView != null) {
+                mAdapter.onAttachedToRecyclerView(mRecyclerView);
+            }
         }
-        notifyDataSetChanged();
+        syncDataCount();
+        syncStateRestorationPolicy();
     }
 
     /**
@@ -164,25 +725,25 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
      * @return
      */
     public boolean isFooter(int position) {
-        return getItemCount() - position <= getFootersCount();
+        return position >= getFooterStart();
     }
 
     /**
-     * 获取HeaderView的个数
+     * 获取HeaderView的个数，不包括被隐藏的HeaderView。
      *
      * @return
      */
     public int getHeadersCount() {
-        return mHeaderViewInfos.size();
+        return mVisibleHeaderViewInfos.size();
     }
 
     /**
-     * 获取FooterView的个数
+     * 获取FooterView的个数，不包括被隐藏的FooterView。
      *
      * @return
      */
     public int getFootersCount() {
-        return mFooterViewInfos.size();
+        return mVisibleFooterViewInfos.size();
     }
 
     /**
@@ -191,117 +752,1480 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
      * @param view
      */
     public void addHeaderView(View view) {
-        addHeaderView(view, generateUniqueViewType());
-    }
-
-    private void addHeaderView(View view, int viewType) {
-        //包装HeaderView数据并添加到列表
-        FixedViewInfo info = new FixedViewInfo();
-        info.view = view;
-        info.itemViewType = viewType;
-        mHeaderViewInfos.add(info);
-        notifyDataSetChanged();
+        addHeaderView(currentViewInfos(true).size(), view);
     }
 
     /**
-     * 删除HeaderView
+     * 在指定位置添加HeaderView
      *
+     * @param index HeaderView在所有HeaderView中的位置
      * @param view
-     * @return 是否删除成功
      */
-    public boolean removeHeaderView(View view) {
-        for (FixedViewInfo info : mHeaderViewInfos) {
-            if (info.view == view) {
-                mHeaderViewInfos.remove(info);
-                notifyDataSetChanged();
-                return true;
-            }
-        }
-        return false;
+    public void addHeaderView(int index, View view) {
+        //包装HeaderView数据并添加到列表
+        addViewInfo(true, index, createViewInfo(view, null));
     }
 
     /**
-     * 添加FooterView
+     * 添加一个延迟创建的HeaderView。HeaderView在RecyclerView第一次需要显示它的时候才通过creator创建，
+     * 移出屏幕并被回收以后会释放对它的引用，再次需要显示时重新创建。
      *
-     * @param view
+     * @param creator 用于创建HeaderView，同时作为这个HeaderView的标识
+     * @param binder  HeaderView的绑定回调，可以为null
      */
-    public void addFooterView(View view) {
-        addFooterView(view, generateUniqueViewType());
+    public void addHeaderView(FixedViewCreator creator, FixedViewBinder binder) {
+        addHeaderView(currentViewInfos(true).size(), creator, binder);
     }
 
-    private void addFooterView(View view, int viewType) {
-        // 包装FooterView数据并添加到列表
-        FixedViewInfo info = new FixedViewInfo();
-        info.view = view;
-        info.itemViewType = viewType;
-        mFooterViewInfos.add(info);
-        notifyDataSetChanged();
+    /**
+     * 在指定位置添加一个延迟创建的HeaderView。
+     *
+     * @param index   HeaderView在所有HeaderView中的位置
+     * @param creator 用于创建HeaderView，同时作为这个HeaderView的标识
+     * @param binder  HeaderView的绑定回调，可以为null
+     * @see #addHeaderView(FixedViewCreator, FixedViewBinder)
+     */
+    public void addHeaderView(int index, FixedViewCreator creator, FixedViewBinder binder) {
+        FixedViewInfo info = createViewInfo(null, creator);
+        info.binder = binder;
+        addViewInfo(true, index, info);
     }
 
     /**
-     * 删除FooterView
+     * 删除HeaderView
      *
      * @param view
      * @return 是否删除成功
      */
-    public boolean removeFooterView(View view) {
-        for (FixedViewInfo info : mFooterViewInfos) {
-            if (info.view == view) {
-                mFooterViewInfos.remove(info);
-                notifyDataSetChanged();
-                return true;
-            }
-        }
-        return false;
+    public boolean removeHeaderView(View view) {
+        return removeViewInfo(true, view);
     }
 
     /**
-     * 生成一个唯一的数，用于标识HeaderView或FooterView的type类型，并且保证类型不会重复。
+     * 删除延迟创建的HeaderView
+     *
+     * @param creator 添加HeaderView时使用的creator
+     * @return 是否删除成功
+     */
+    public boolean removeHeaderView(FixedViewCreator creator) {
+        return removeViewInfo(true, creator);
+    }
+
+    /**
+     * 添加FooterView。如果设置了加载更多的FooterView，新的FooterView会添加在它的前面。
+     *
+     * @param view
+     */
+    public void addFooterView(View view) {
+        addFooterView(getFooterAppendIndex(), view);
+    }
+
+    /**
+     * 在指定位置添加FooterView
+     *
+     * @param index FooterView在所有FooterView中的位置
+     * @param view
+     */
+    public void addFooterView(int index, View view) {
+        // 包装FooterView数据并添加到列表
+        addViewInfo(false, index, createViewInfo(view, null));
+    }
+
+    /**
+     * 添加一个延迟创建的FooterView。
+     *
+     * @param creator 用于创建FooterView，同时作为这个FooterView的标识
+     * @param binder  FooterView的绑定回调，可以为null
+     * @see #addHeaderView(FixedViewCreator, FixedViewBinder)
+     */
+    public void addFooterView(FixedViewCreator creator, FixedViewBinder binder) {
+        addFooterView(getFooterAppendIndex(), creator, binder);
+    }
+
+    /**
+     * 在指定位置添加一个延迟创建的FooterView。
+     *
+     * @param index   FooterView在所有FooterView中的位置
+     * @param creator 用于创建FooterView，同时作为这个FooterView的标识
+     * @param binder  FooterView的绑定回调，可以为null
+     * @see #addHeaderView(FixedViewCreator, FixedViewBinder)
+     */
+    public void addFooterView(int index, FixedViewCreator creator, FixedViewBinder binder) {
+        FixedViewInfo info = createViewInfo(null, creator);
+        info.binder = binder;
+        addViewInfo(false, index, info);
+    }
+
+    /**
+     * 删除FooterView
+     *
+     * @param view
+     * @return 是否删除成功
+     */
+    public boolean removeFooterView(View view) {
+        return removeViewInfo(false, view);
+    }
+
+    /**
+     * 删除延迟创建的FooterView
+     *
+     * @param creator 添加FooterView时使用的creator
+     * @return 是否删除成功
+     */
+    public boolean removeFooterView(FixedViewCreator creator) {
+        return removeViewInfo(false, creator);
+    }
+
+    /**
+     * 添加HeaderView或FooterView。批量更新期间只修改待提交的列表，不发出通知。
+     *
+     * @param header 是否是HeaderView
+     * @param index  在所有HeaderView或FooterView中的位置
+     * @param info
+     */
+    private void addViewInfo(boolean header, int index, FixedViewInfo info) {
+        List<FixedViewInfo> infos = editableViewInfos(header);
+        infos.add(index, info);
+        onViewInfoAdded(info);
+        if (!hasPendingUpdates()) {
+            int visibleIndex = getVisibleIndex(infos, index);
+            refreshVisibleViewInfos(header);
+            notifyItemInserted(header ? visibleIndex : getFooterStart() + visibleIndex);
+        }
+    }
+
+    /**
+     * 删除HeaderView或FooterView。批量更新期间只修改待提交的列表，不发出通知。
+     *
+     * @param header 是否是HeaderView
+     * @param key    添加时使用的View或FixedViewCreator
+     * @return 是否删除成功
+     */
+    private boolean removeViewInfo(boolean header, Object key) {
+        List<FixedViewInfo> infos = editableViewInfos(header);
+        int index = indexOfViewInfo(infos, key);
+        if (index < 0) {
+            return false;
+        }
+        int visibleIndex = getVisibleIndex(infos, index);
+        FixedViewInfo info = infos.remove(index);
+        if (!hasPendingUpdates()) {
+            onViewInfoRemoved(info);
+            if (info.visible) {
+                refreshVisibleViewInfos(header);
+                notifyItemRemoved(header ? visibleIndex : getFooterStart() + visibleIndex);
+            }
+        } else if (!(header ? mHeaderViewInfos : mFooterViewInfos).contains(info)) {
+            //在这次批量更新中添加又删除的，RecyclerView还不知道它的存在，可以直接删除。
+            onViewInfoRemoved(info);
+        }
+        return true;
+    }
+
+    /**
+     * 用views替换当前所有的HeaderView。已经存在的HeaderView会保留原来的viewType和ViewHolder，
+     * 只对新增、删除和移动的HeaderView发出最小的一批通知。
+     * 通过{@link #addHeaderView(FixedViewCreator, FixedViewBinder)}添加的延迟创建的HeaderView会被删除。
+     *
+     * @param views 新的HeaderView，按显示顺序排列，不能重复
+     */
+    public void setHeaders(List<View> views) {
+        setFixedViews(true, views);
+    }
+
+    /**
+     * 用views替换当前所有的FooterView。
+     * 通过{@link #setLoadMoreFooter(LoadMoreFooter, OnLoadMoreListener)}设置的加载更多的FooterView会被保留，并且仍然排在最后。
+     *
+     * @param views 新的FooterView，按显示顺序排列，不能重复
+     * @see #setHeaders(List)
+     */
+    public void setFooters(List<View> views) {
+        setFixedViews(false, views);
+    }
+
+    /**
+     * 用views替换当前的HeaderView或FooterView，复用已经存在的FixedViewInfo。
+     *
+     * @param header 是否是HeaderView
+     * @param views  新的View列表
+     */
+    private void setFixedViews(boolean header, List<View> views) {
+        List<FixedViewInfo> infos = editableViewInfos(header);
+        Map<View, FixedViewInfo> oldInfos = new IdentityHashMap<>();
+        FixedViewInfo loadMoreInfo = null;
+        for (FixedViewInfo info : infos) {
+            if (info.creator == null) {
+                oldInfos.put(info.view, info);
+            } else if (!header && mLoadMoreFooter != null && info.creator == mLoadMoreFooter) {
+                loadMoreInfo = info;
+            }
+        }
+
+        List<FixedViewInfo> newList = new ArrayList<>(views.size());
+        Set<View> added = Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
+        for (View view : views) {
+            if (!added.add(view)) {
+                throw new IllegalArgumentException("The same view cannot be added twice");
+            }
+            FixedViewInfo info = oldInfos.remove(view);
+            newList.add(info != null ? info : createViewInfo(view, null));
+        }
+        if (loadMoreInfo != null) {
+            //加载更多的FooterView不属于views，保留它，否则分页加载会停止。
+            newList.add(loadMoreInfo);
+        }
+
+        if (hasPendingUpdates()) {
+            //批量更新期间只修改待提交的列表，提交时再统一计算差异。
+            List<FixedViewInfo> published = header ? mHeaderViewInfos : mFooterViewInfos;
+            Set<FixedViewInfo> kept = new HashSet<>(newList);
+            for (FixedViewInfo info : infos) {
+                if (!kept.contains(info) && !published.contains(info)) {
+                    onViewInfoRemoved(info);
+                }
+            }
+            infos.clear();
+            infos.addAll(newList);
+            for (FixedViewInfo info : newList) {
+                onViewInfoAdded(info);
+            }
+        } else {
+            applyViewInfos(header, newList);
+        }
+    }
+
+    /**
+     * 用newList替换当前的HeaderView或FooterView，并通过DiffUtil对正在显示的部分计算最小的插入、删除和移动通知。
+     *
+     * @param header  是否是HeaderView
+     * @param newList 新的FixedViewInfo列表
+     */
+    private void applyViewInfos(boolean header, List<FixedViewInfo> newList) {
+        List<FixedViewInfo> infos = header ? mHeaderViewInfos : mFooterViewInfos;
+        final List<FixedViewInfo> oldVisible = new ArrayList<>(header ? mVisibleHeaderViewInfos : mVisibleFooterViewInfos);
+        final List<FixedViewInfo> newVisible = new ArrayList<>(newList.size());
+        for (FixedViewInfo info : newList) {
+            if (info.visible) {
+                newVisible.add(info);
+            }
+        }
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldVisible.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newVisible.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldVisible.get(oldItemPosition) == newVisible.get(newItemPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return true;
+            }
+        });
+
+        Set<FixedViewInfo> kept = new HashSet<>(newList);
+        for (FixedViewInfo info : infos) {
+            if (!kept.contains(info)) {
+                onViewInfoRemoved(info);
+            }
+        }
+        infos.clear();
+        infos.addAll(newList);
+        for (FixedViewInfo info : newList) {
+            onViewInfoAdded(info);
+        }
+        refreshVisibleViewInfos(header);
+        result.dispatchUpdatesTo(new OffsetListUpdateCallback(header ? 0 : getFooterStart()));
+    }
+
+    /**
+     * 根据mHeaderViewInfos或mFooterViewInfos重新生成正在显示的列表。
+     *
+     * @param header 是否是HeaderView
+     */
+    private void refreshVisibleViewInfos(boolean header) {
+        List<FixedViewInfo> infos = header ? mHeaderViewInfos : mFooterViewInfos;
+        List<FixedViewInfo> visible = header ? mVisibleHeaderViewInfos : mVisibleFooterViewInfos;
+        visible.clear();
+        for (FixedViewInfo info : infos) {
+            if (info.visible) {
+                visible.add(info);
+            }
+        }
+        if (header) {
+            refreshStickyHeaderPositions();
+        }
+    }
+
+    private void refreshStickyHeaderPositions() {
+        int count = 0;
+        for (int i = 0; i < mVisibleHeaderViewInfos.size(); i++) {
+            if (mVisibleHeaderViewInfos.get(i).sticky) {
+                count++;
+            }
+        }
+        if (mStickyHeaderPositions.length != count) {
+            mStickyHeaderPositions = new int[count];
+        }
+        int index = 0;
+        for (int i = 0; i < mVisibleHeaderViewInfos.size(); i++) {
+            if (mVisibleHeaderViewInfos.get(i).sticky) {
+                mStickyHeaderPositions[index++] = i;
+            }
+        }
+    }
+
+    /**
+     * 计算infos中index之前有多少个正在显示的项，也就是index对应的项显示时在HeaderView或FooterView中的位置。
+     *
+     * @param infos
+     * @param index
+     * @return
+     */
+    private static int getVisibleIndex(List<FixedViewInfo> infos, int index) {
+        int visibleIndex = 0;
+        for (int i = 0; i < index; i++) {
+            if (infos.get(i).visible) {
+                visibleIndex++;
+            }
+        }
+        return visibleIndex;
+    }
+
+    /**
+     * 显示或隐藏HeaderView。隐藏的HeaderView仍然保留它的viewType和位置，再次显示时可以复用原来的ViewHolder，
+     * 每次切换只发出一次插入或删除通知。
+     *
+     * @param view    已经添加的HeaderView
+     * @param visible
+     * @return 是否设置成功
+     */
+    public boolean setHeaderVisible(View view, boolean visible) {
+        return setViewInfoVisible(true, view, visible);
+    }
+
+    /**
+     * 显示或隐藏延迟创建的HeaderView。
+     *
+     * @param creator 添加HeaderView时使用的creator
+     * @param visible
+     * @return 是否设置成功
+     * @see #setHeaderVisible(View, boolean)
+     */
+    public boolean setHeaderVisible(FixedViewCreator creator, boolean visible) {
+        return setViewInfoVisible(true, creator, visible);
+    }
+
+    /**
+     * 显示或隐藏FooterView。
+     *
+     * @param view    已经添加的FooterView
+     * @param visible
+     * @return 是否设置成功
+     * @see #setHeaderVisible(View, boolean)
+     */
+    public boolean setFooterVisible(View view, boolean visible) {
+        return setViewInfoVisible(false, view, visible);
+    }
+
+    /**
+     * 显示或隐藏延迟创建的FooterView。
+     *
+     * @param creator 添加FooterView时使用的creator
+     * @param visible
+     * @return 是否设置成功
+     * @see #setHeaderVisible(View, boolean)
+     */
+    public boolean setFooterVisible(FixedViewCreator creator, boolean visible) {
+        return setViewInfoVisible(false, creator, visible);
+    }
+
+    private boolean setViewInfoVisible(boolean header, Object key, boolean visible) {
+        List<FixedViewInfo> infos = editableViewInfos(header);
+        int index = indexOfViewInfo(infos, key);
+        if (index < 0) {
+            return false;
+        }
+        FixedViewInfo info = infos.get(index);
+        if (info.visible == visible) {
+            return true;
+        }
+        info.visible = visible;
+        if (!hasPendingUpdates()) {
+            int position = (header ? 0 : getFooterStart()) + getVisibleIndex(infos, index);
+            refreshVisibleViewInfos(header);
+            if (visible) {
+                notifyItemInserted(position);
+            } else {
+                notifyItemRemoved(position);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 设置HeaderView是否吸顶。列表滑过吸顶的HeaderView之后，它会一直固定显示在列表顶部，直到被下一个吸顶的HeaderView推走。
+     * 固定在顶部的是HeaderView的图像缓存，只有在HeaderView重新绑定、调用了{@link #notifyFixedViewChanged(View, Object)}
+     * 或者大小变化时才会重新绘制，所以直接修改HeaderView的内容后需要调用notifyFixedViewChanged。
+     *
+     * @param view   已经添加的HeaderView
+     * @param sticky 默认不吸顶
+     * @return 是否设置成功
+     */
+    public boolean setHeaderSticky(View view, boolean sticky) {
+        return setViewInfoSticky(view, sticky);
+    }
+
+    /**
+     * 设置延迟创建的HeaderView是否吸顶。吸顶的HeaderView被回收以后不会释放。
+     *
+     * @param creator 添加HeaderView时使用的creator
+     * @param sticky  默认不吸顶
+     * @return 是否设置成功
+     * @see #setHeaderSticky(View, boolean)
+     */
+    public boolean setHeaderSticky(FixedViewCreator creator, boolean sticky) {
+        return setViewInfoSticky(creator, sticky);
+    }
+
+    /**
+     * 判断HeaderView是否吸顶。
+     *
+     * @param view 已经添加的HeaderView
+     * @return 没有找到时返回false
+     */
+    public boolean isHeaderSticky(View view) {
+        FixedViewInfo info = findViewInfo(view);
+        return info != null && info.sticky;
+    }
+
+    private boolean setViewInfoSticky(Object key, boolean sticky) {
+        checkMainThread();
+        List<FixedViewInfo> infos = currentViewInfos(true);
+        int index = indexOfViewInfo(infos, key);
+        if (index < 0) {
+            return false;
+        }
+        FixedViewInfo info = infos.get(index);
+        if (info.sticky == sticky) {
+            return true;
+        }
+        info.sticky = sticky;
+        //批量更新期间只修改标记，提交时会重新计算。
+        if (!hasPendingUpdates()) {
+            refreshStickyHeaderPositions();
+        }
+        if (sticky && mStickyHeaderDecoration == null) {
+            mStickyHeaderDecoration = new StickyHeaderDecoration(this);
+            if (mRecyclerView != null) {
+                mRecyclerView.addItemDecoration(mStickyHeaderDecoration);
+            }
+        }
+        if (mRecyclerView != null) {
+            mRecyclerView.invalidate();
+        }
+        return true;
+    }
+
+    /**
+     * 查找第一个可见项为position时需要吸顶的HeaderView。
+     *
+     * @param position 第一个可见项的position
+     * @return 在position之前（包括position）的最后一个吸顶HeaderView的position，没有时返回{@link RecyclerView#NO_POSITION}
+     */
+    int findStickyHeaderPosition(int position) {
+        int result = RecyclerView.NO_POSITION;
+        for (int stickyPosition : mStickyHeaderPositions) {
+            if (stickyPosition > position) {
+                break;
+            }
+            result = stickyPosition;
+        }
+        return result;
+    }
+
+    /**
+     * 查找position之后的下一个吸顶HeaderView。
+     *
+     * @param position 吸顶HeaderView的position
+     * @return 没有时返回{@link RecyclerView#NO_POSITION}
+     */
+    int findNextStickyHeaderPosition(int position) {
+        for (int stickyPosition : mStickyHeaderPositions) {
+            if (stickyPosition > position) {
+                return stickyPosition;
+            }
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * 获取正在显示的HeaderView
+     *
+     * @param position HeaderView的position
+     * @return 延迟创建的HeaderView还没有创建时返回null
+     */
+    View getHeaderView(int position) {
+        return mVisibleHeaderViewInfos.get(position).view;
+    }
+
+    /**
+     * 判断HeaderView或FooterView是否正在显示。
+     *
+     * @param view 已经添加的HeaderView或FooterView
+     * @return 没有找到时返回false
+     */
+    public boolean isFixedViewVisible(View view) {
+        FixedViewInfo info = findViewInfo(view);
+        return info != null && info.visible;
+    }
+
+    /**
+     * 判断延迟创建的HeaderView或FooterView是否正在显示。
+     *
+     * @param creator 添加时使用的creator
+     * @return 没有找到时返回false
+     */
+    public boolean isFixedViewVisible(FixedViewCreator creator) {
+        FixedViewInfo info = findViewInfo(creator);
+        return info != null && info.visible;
+    }
+
+    /**
+     * 开始批量更新。在{@link #endUpdates()}之前，添加、删除和替换HeaderView或FooterView都不会马上生效，
+     * 也不会发出通知；调用{@link #endUpdates()}时才会一起生效，并且只发出合并后的最小的一批通知。
+     * 批量更新期间{@link #getHeadersCount()}等方法返回的仍然是更新前的状态。可以嵌套调用。
+     */
+    public void beginUpdates() {
+        checkMainThread();
+        if (mBatchDepth++ == 0 && !hasPendingUpdates()) {
+            startPendingUpdates();
+        }
+    }
+
+    /**
+     * 结束批量更新，让{@link #beginUpdates()}之后的修改一起生效。
+     */
+    public void endUpdates() {
+        checkMainThread();
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("endUpdates() called without beginUpdates()");
+        }
+        if (--mBatchDepth == 0) {
+            if (mFrameUpdateScheduled) {
+                mFrameUpdateScheduled = false;
+                mFrameTask.cancel();
+            }
+            commitPendingUpdates();
+        }
+    }
+
+    /**
+     * 在一次批量更新中执行transaction。
+     *
+     * @param transaction
+     * @see #beginUpdates()
+     */
+    public void runInTransaction(Transaction transaction) {
+        beginUpdates();
+        try {
+            transaction.run(this);
+        } finally {
+            endUpdates();
+        }
+    }
+
+    /**
+     * 在任意线程提交对HeaderView和FooterView的修改。修改会被放进一个无锁队列，在主线程的下一帧按提交的顺序
+     * 在同一次批量更新中执行，多次提交的修改只会发出一组合并后的通知。
+     * transaction在主线程执行，可以调用HeaderViewAdapter的任何方法。
+     *
+     * @param transaction
+     * @see #runInTransaction(Transaction)
+     */
+    public void postTransaction(Transaction transaction) {
+        if (transaction == null) {
+            throw new IllegalArgumentException("transaction can not be null");
+        }
+        mQueuedTransactions.offer(transaction);
+        scheduleQueuedTransactions();
+    }
+
+    /**
+     * 在任意线程添加HeaderView，在主线程的下一帧生效。
+     *
+     * @param view
+     * @see #postTransaction(Transaction)
+     */
+    public void postAddHeaderView(final View view) {
+        postTransaction(new Transaction() {
+            @Override
+            public void run(HeaderViewAdapter adapter) {
+                adapter.addHeaderView(view);
+            }
+        });
+    }
+
+    /**
+     * 在任意线程删除HeaderView，在主线程的下一帧生效。
+     *
+     * @param view
+     * @see #postTransaction(Transaction)
+     */
+    public void postRemoveHeaderView(final View view) {
+        postTransaction(new Transaction() {
+            @Override
+            public void run(HeaderViewAdapter adapter) {
+                adapter.removeHeaderView(view);
+            }
+        });
+    }
+
+    /**
+     * 在任意线程添加FooterView，在主线程的下一帧生效。
+     *
+     * @param view
+     * @see #postTransaction(Transaction)
+     */
+    public void postAddFooterView(final View view) {
+        postTransaction(new Transaction() {
+            @Override
+            public void run(HeaderViewAdapter adapter) {
+                adapter.addFooterView(view);
+            }
+        });
+    }
+
+    /**
+     * 在任意线程删除FooterView，在主线程的下一帧生效。
+     *
+     * @param view
+     * @see #postTransaction(Transaction)
+     */
+    public void postRemoveFooterView(final View view) {
+        postTransaction(new Transaction() {
+            @Override
+            public void run(HeaderViewAdapter adapter) {
+                adapter.removeFooterView(view);
+            }
+        });
+    }
+
+    /**
+     * 设置是否检查添加、删除、显示隐藏、吸顶和局部刷新HeaderView和FooterView，设置加载更多的状态，
+     * 以及beginUpdates()和endUpdates()是否在主线程调用。
+     * 开启后在其他线程调用这些方法会抛出异常，应该改用{@link #postTransaction(Transaction)}。
+     *
+     * @param enabled 默认只在debuggable的应用中检查
+     */
+    public void setThreadCheckEnabled(boolean enabled) {
+        mThreadCheckEnabled = enabled;
+    }
+
+    private void updateDebuggable(Context context) {
+        if (!mDebuggable && context != null) {
+            mDebuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        }
+    }
+
+    private void checkMainThread() {
+        boolean enabled = mThreadCheckEnabled != null ? mThreadCheckEnabled : mDebuggable;
+        if (enabled && Looper.myLooper() != Looper.getMainLooper()) {
+            throw new IllegalStateException("HeaderView and FooterView must be modified on the main thread, "
+                    + "use postTransaction() on other threads. Current thread: " + Thread.currentThread().getName());
+        }
+    }
+
+    private void scheduleQueuedTransactions() {
+        if (mQueuedTransactionsScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                mScheduleQueuedTransactions.run();
+            } else {
+                MAIN_HANDLER.post(mScheduleQueuedTransactions);
+            }
+        }
+    }
+
+    private void runQueuedTransactions() {
+        //先清除标记，执行期间新提交的修改会安排到下一帧。
+        mQueuedTransactionsScheduled.set(false);
+        if (mQueuedTransactions.isEmpty()) {
+            return;
+        }
+        beginUpdates();
+        try {
+            Transaction transaction;
+            while ((transaction = mQueuedTransactions.poll()) != null) {
+                transaction.run(this);
+            }
+        } finally {
+            endUpdates();
+            //某个修改抛出了异常，剩下的修改留到下一帧执行。
+            if (!mQueuedTransactions.isEmpty()) {
+                scheduleQueuedTransactions();
+            }
+        }
+    }
+
+    /**
+     * 设置是否把HeaderView和FooterView的修改合并到下一帧。开启以后，不在{@link #beginUpdates()}和
+     * {@link #endUpdates()}之间的修改也会先被收集起来，在下一帧开始时一起生效，并且只发出合并后的通知。
+     * 只能在主线程使用。
+     *
+     * @param coalesce 默认关闭
+     */
+    public void setCoalesceUpdatesToFrame(boolean coalesce) {
+        mCoalesceUpdatesToFrame = coalesce;
+        if (!coalesce && mFrameUpdateScheduled) {
+            mFrameUpdateScheduled = false;
+            mFrameTask.cancel();
+            if (mBatchDepth == 0) {
+                commitPendingUpdates();
+            }
+        }
+    }
+
+    private boolean hasPendingUpdates() {
+        return mPendingHeaderViewInfos != null;
+    }
+
+    private void startPendingUpdates() {
+        mPendingHeaderViewInfos = new ArrayList<>(mHeaderViewInfos);
+        mPendingFooterViewInfos = new ArrayList<>(mFooterViewInfos);
+    }
+
+    /**
+     * 提交批量更新。先提交HeaderView，再以新的HeaderView个数为偏移提交FooterView。
+     */
+    private void commitPendingUpdates() {
+        if (!hasPendingUpdates()) {
+            return;
+        }
+        List<FixedViewInfo> headers = mPendingHeaderViewInfos;
+        List<FixedViewInfo> footers = mPendingFooterViewInfos;
+        mPendingHeaderViewInfos = null;
+        mPendingFooterViewInfos = null;
+        applyViewInfos(true, headers);
+        applyViewInfos(false, footers);
+    }
+
+    /**
+     * 获取在末尾添加FooterView时使用的位置。加载更多的FooterView总是保持在最后，新的FooterView添加在它的前面。
      *
      * @return
      */
-    private int generateUniqueViewType() {
-        int count = getItemCount();
-        while (true) {
-            //生成一个随机数。
-            int viewType = (int) (Math.random() * Integer.MAX_VALUE) + 1;
-
-            //判断该viewType是否已使用。
-            boolean isExist = false;
-            for (int i = 0; i < count; i++) {
-                if (viewType == getItemViewType(i)) {
-                    isExist = true;
-                    break;
-                }
+    private int getFooterAppendIndex() {
+        List<FixedViewInfo> infos = currentViewInfos(false);
+        int size = infos.size();
+        if (size > 0 && mLoadMoreFooter != null && infos.get(size - 1).creator == mLoadMoreFooter) {
+            return size - 1;
+        }
+        return size;
+    }
+
+    /**
+     * 获取当前的HeaderView或FooterView列表，批量更新期间返回待提交的列表。
+     *
+     * @param header 是否是HeaderView
+     * @return
+     */
+    private List<FixedViewInfo> currentViewInfos(boolean header) {
+        if (hasPendingUpdates()) {
+            return header ? mPendingHeaderViewInfos : mPendingFooterViewInfos;
+        }
+        return header ? mHeaderViewInfos : mFooterViewInfos;
+    }
+
+    /**
+     * 获取用于修改的HeaderView或FooterView列表。如果开启了合并到下一帧，会在这里开始一次批量更新。
+     *
+     * @param header 是否是HeaderView
+     * @return
+     */
+    private List<FixedViewInfo> editableViewInfos(boolean header) {
+        checkMainThread();
+        if (!hasPendingUpdates() && mCoalesceUpdatesToFrame) {
+            startPendingUpdates();
+            mFrameUpdateScheduled = true;
+            mFrameTask.post();
+        }
+        return currentViewInfos(header);
+    }
+
+    /**
+     * 在后台线程inflate布局，完成后把它添加到HeaderView的末尾。
+     *
+     * @param parent   用于生成HeaderView的LayoutParams，一般传RecyclerView
+     * @param layoutId HeaderView的布局id
+     * @param listener 添加完成后在主线程回调，可以为null
+     */
+    public void addHeaderViewAsync(ViewGroup parent, @LayoutRes int layoutId, OnFixedViewCreatedListener listener) {
+        addHeaderViewAsync(parent, new LayoutViewCreator(layoutId), listener);
+    }
+
+    /**
+     * 在后台线程创建HeaderView，完成后把它添加到HeaderView的末尾，并且只发出一次插入通知。
+     * viewType在调用时就已经分配，所以同样的调用顺序总是得到同样的viewType。
+     * 如果在后台线程创建失败，会回到主线程重新创建。
+     *
+     * @param parent   用于生成HeaderView的LayoutParams，一般传RecyclerView
+     * @param creator  需要能在后台线程调用
+     * @param listener 添加完成后在主线程回调，可以为null
+     */
+    public void addHeaderViewAsync(ViewGroup parent, FixedViewCreator creator, final OnFixedViewCreatedListener listener) {
+        updateDebuggable(parent.getContext());
+        final FixedViewInfo info = createViewInfo(null, null);
+        AsyncFixedViewInflater.create(parent, creator, new AsyncFixedViewInflater.Callback() {
+            @Override
+            public void onViewCreated(View view) {
+                info.view = view;
+                addViewInfo(true, currentViewInfos(true).size(), info);
+                if (listener != null) {
+                    listener.onFixedViewCreated(view);
+                }
+            }
+        });
+    }
+
+    /**
+     * 在后台线程inflate布局，完成后把它添加到FooterView的末尾。
+     *
+     * @param parent   用于生成FooterView的LayoutParams，一般传RecyclerView
+     * @param layoutId FooterView的布局id
+     * @param listener 添加完成后在主线程回调，可以为null
+     */
+    public void addFooterViewAsync(ViewGroup parent, @LayoutRes int layoutId, OnFixedViewCreatedListener listener) {
+        addFooterViewAsync(parent, new LayoutViewCreator(layoutId), listener);
+    }
+
+    /**
+     * 在后台线程创建FooterView，完成后把它添加到FooterView的末尾(加载更多的FooterView的前面)，并且只发出一次插入通知。
+     *
+     * @param parent   用于生成FooterView的LayoutParams，一般传RecyclerView
+     * @param creator  需要能在后台线程调用
+     * @param listener 添加完成后在主线程回调，可以为null
+     * @see #addHeaderViewAsync(ViewGroup, FixedViewCreator, OnFixedViewCreatedListener)
+     */
+    public void addFooterViewAsync(ViewGroup parent, FixedViewCreator creator, final OnFixedViewCreatedListener listener) {
+        updateDebuggable(parent.getContext());
+        final FixedViewInfo info = createViewInfo(null, null);
+        AsyncFixedViewInflater.create(parent, creator, new AsyncFixedViewInflater.Callback() {
+            @Override
+            public void onViewCreated(View view) {
+                info.view = view;
+                addViewInfo(false, getFooterAppendIndex(), info);
+                if (listener != null) {
+                    listener.onFixedViewCreated(view);
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置FooterView的预创建距离。列表滑动到距离第一个FooterView还有distance个列表项的时候，
+     * 在后台线程提前创建还没有创建的延迟FooterView({@link #addFooterView(FixedViewCreator, FixedViewBinder)})，
+     * 这样FooterView进入屏幕时就不需要在主线程创建了。FixedViewCreator需要能在后台线程调用。
+     *
+     * @param distance 小于0表示关闭预创建，默认关闭
+     */
+    public void setFooterPrefetchDistance(int distance) {
+        mFooterPrefetchDistance = distance;
+        if (mRecyclerView != null) {
+            mRecyclerView.removeOnScrollListener(mFooterPrefetchListener);
+            if (distance >= 0) {
+                mRecyclerView.addOnScrollListener(mFooterPrefetchListener);
+            }
+        }
+    }
+
+    /**
+     * 设置加载更多的FooterView。FooterView会被添加到当前所有FooterView的后面，
+     * 之后通过addFooterView添加到末尾的FooterView会排在它的前面。
+     * 列表滑动到距离最后一个数据项还有{@link #setLoadMorePrefetchDistance(int)}项时回调listener。
+     * <p>
+     * 回调时状态已经变成{@link #LOAD_MORE_STATE_LOADING}，在加载完成之前不会再次回调。
+     * 加载完成后先通知被包装的Adapter插入了新数据（新数据总是插入在所有FooterView的前面），
+     * 再调用{@link #setLoadMoreState(int)}设置为{@link #LOAD_MORE_STATE_IDLE}、{@link #LOAD_MORE_STATE_ERROR}
+     * 或{@link #LOAD_MORE_STATE_END}。每次状态变化只会局部刷新这一个FooterView。
+     *
+     * @param footer   传null表示移除加载更多
+     * @param listener 加载更多的回调
+     */
+    public void setLoadMoreFooter(LoadMoreFooter footer, OnLoadMoreListener listener) {
+        if (mLoadMoreFooter != null) {
+            removeFooterView(mLoadMoreFooter);
+        }
+        mLoadMoreFooter = footer;
+        mOnLoadMoreListener = footer != null ? listener : null;
+        mLoadMoreState = LOAD_MORE_STATE_IDLE;
+        if (footer != null) {
+            addFooterView(footer, mLoadMoreBinder);
+        }
+    }
+
+    /**
+     * 设置加载更多的预加载距离
+     *
+     * @param distance 距离最后一个数据项还有多少项时开始加载，默认为2，0表示显示到最后一项时才加载。
+     */
+    public void setLoadMorePrefetchDistance(int distance) {
+        if (distance < 0) {
+            throw new IllegalArgumentException("distance must be >= 0, distance = " + distance);
+        }
+        mLoadMorePrefetchDistance = distance;
+    }
+
+    /**
+     * 设置加载更多的状态。状态变化时只会局部刷新加载更多的FooterView。
+     *
+     * @param state {@link #LOAD_MORE_STATE_IDLE}、{@link #LOAD_MORE_STATE_LOADING}、
+     *              {@link #LOAD_MORE_STATE_ERROR}或{@link #LOAD_MORE_STATE_END}
+     */
+    public void setLoadMoreState(int state) {
+        checkMainThread();
+        if (state < LOAD_MORE_STATE_IDLE || state > LOAD_MORE_STATE_END) {
+            throw new IllegalArgumentException("Unknown load more state " + state);
+        }
+        if (mLoadMoreState == state) {
+            return;
+        }
+        mLoadMoreState = state;
+        if (mLoadMoreFooter != null) {
+            int position = getFixedViewPosition(mLoadMoreFooter);
+            if (position != RecyclerView.NO_POSITION) {
+                notifyItemChanged(position, PAYLOAD_LOAD_MORE_STATE);
+            }
+        }
+    }
+
+    /**
+     * 获取加载更多的状态
+     *
+     * @return
+     */
+    public int getLoadMoreState() {
+        return mLoadMoreState;
+    }
+
+    /**
+     * 加载失败后重新加载，通常在点击加载更多的FooterView时调用。只有在{@link #LOAD_MORE_STATE_ERROR}状态下有效。
+     */
+    public void retryLoadMore() {
+        if (mLoadMoreState == LOAD_MORE_STATE_ERROR) {
+            mLoadMoreState = LOAD_MORE_STATE_IDLE;
+            requestLoadMore();
+        }
+    }
+
+    private void postLoadMoreIfNeeded() {
+        if (mOnLoadMoreListener != null && mLoadMoreState == LOAD_MORE_STATE_IDLE
+                && !mLoadMorePosted && mRecyclerView != null) {
+            mLoadMorePosted = true;
+            mRecyclerView.post(mLoadMoreRunnable);
+        }
+    }
+
+    private void requestLoadMore() {
+        if (mOnLoadMoreListener == null || mLoadMoreState != LOAD_MORE_STATE_IDLE) {
+            return;
+        }
+        setLoadMoreState(LOAD_MORE_STATE_LOADING);
+        mOnLoadMoreListener.onLoadMore();
+    }
+
+    /**
+     * 设置是否在系统内存不足时（{@link ComponentCallbacks2#onTrimMemory(int)}的level不低于
+     * {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW}）自动释放不在屏幕上的HeaderView和FooterView。
+     * 只有通过{@link FixedViewCreator}添加的HeaderView和FooterView可以被释放，它们在重新滑动到屏幕上时会用creator重新创建。
+     * 直接传入View添加的HeaderView和FooterView没有办法重新创建，不会被释放。
+     *
+     * @param enabled 默认关闭
+     * @see #trimMemory(int)
+     */
+    public void setTrimMemoryEnabled(boolean enabled) {
+        mTrimMemoryEnabled = enabled;
+        if (mRecyclerView != null) {
+            if (enabled) {
+                registerTrimMemoryCallbacks(mRecyclerView.getContext());
+            } else {
+                unregisterTrimMemoryCallbacks();
+            }
+        }
+    }
+
+    /**
+     * 通过{@link RecyclerView#setItemViewCacheSize(int)}修改了缓存大小以后调用这个方法告诉HeaderViewAdapter。
+     * {@link #trimMemory(int)}需要临时清空RecyclerView的缓存才能释放缓存中的HeaderView和FooterView，之后会恢复成这里的大小。
+     * RecyclerView没有获取缓存大小的方法，所以需要单独记录。HeaderRecyclerView会自动调用。
+     *
+     * @param size 默认为2，跟RecyclerView一样
+     */
+    public void notifyItemViewCacheSizeChanged(int size) {
+        if (!mFlushingItemViewCache) {
+            mItemViewCacheSize = size;
+        }
+    }
+
+    /**
+     * 设置释放HeaderView和FooterView后的回调
+     *
+     * @param listener
+     */
+    public void setOnFixedViewsTrimmedListener(OnFixedViewsTrimmedListener listener) {
+        mOnFixedViewsTrimmedListener = listener;
+    }
+
+    /**
+     * 释放不在屏幕上的HeaderView和FooterView。已经在自己的ComponentCallbacks2里处理内存回调时可以直接调用这个方法。
+     * 正在显示和正在吸顶显示的View不会被释放。RecyclerView缓存中有可以释放的View时，会先清空RecyclerView的缓存，
+     * 再恢复成{@link #notifyItemViewCacheSizeChanged(int)}记录的大小。
+     *
+     * @param level {@link ComponentCallbacks2#onTrimMemory(int)}的level，低于TRIM_MEMORY_RUNNING_LOW时不释放
+     * @return 释放的View的个数
+     */
+    public int trimMemory(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 0;
+        }
+
+        View pinnedView = mStickyHeaderDecoration != null ? mStickyHeaderDecoration.getCachedView() : null;
+        int createdCount = getCreatedFixedViewCount();
+        if (mRecyclerView != null && hasCachedFixedView(pinnedView)) {
+            //RecyclerView缓存中的ViewHolder还没有被回收。缩小缓存会回收它们，onViewRecycled会释放延迟创建的View。
+            mFlushingItemViewCache = true;
+            mRecyclerView.setItemViewCacheSize(0);
+            mRecyclerView.setItemViewCacheSize(mItemViewCacheSize);
+            mFlushingItemViewCache = false;
+        }
+        for (int i = 0; i < mFixedViewInfos.size(); i++) {
+            FixedViewInfo info = mFixedViewInfos.valueAt(i);
+            if (info.creator == null || info.view == null || info.inUse || info.view == pinnedView) {
+                continue;
+            }
+            info.view = null;
+        }
+        int count = createdCount - getCreatedFixedViewCount();
+        if (count > 0 && mOnFixedViewsTrimmedListener != null) {
+            mOnFixedViewsTrimmedListener.onFixedViewsTrimmed(level, count);
+        }
+        return count;
+    }
+
+    /**
+     * 通过creator添加并且已经创建了View的HeaderView和FooterView的个数
+     */
+    private int getCreatedFixedViewCount() {
+        int count = 0;
+        for (int i = 0; i < mFixedViewInfos.size(); i++) {
+            FixedViewInfo info = mFixedViewInfos.valueAt(i);
+            if (info.creator != null && info.view != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 是否有可以释放的HeaderView或FooterView正在RecyclerView的缓存中，也就是还没有被回收，但已经不在RecyclerView上。
+     *
+     * @param pinnedView 正在吸顶显示的View
+     */
+    private boolean hasCachedFixedView(View pinnedView) {
+        for (int i = 0; i < mFixedViewInfos.size(); i++) {
+            FixedViewInfo info = mFixedViewInfos.valueAt(i);
+            if (info.creator != null && info.view != null && info.inUse
+                    && info.view != pinnedView && info.view.getParent() == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void registerTrimMemoryCallbacks(Context context) {
+        if (mTrimMemoryContext == null) {
+            mTrimMemoryContext = context.getApplicationContext();
+            mTrimMemoryContext.registerComponentCallbacks(mTrimMemoryCallbacks);
+        }
+    }
+
+    private void unregisterTrimMemoryCallbacks() {
+        if (mTrimMemoryContext != null) {
+            mTrimMemoryContext.unregisterComponentCallbacks(mTrimMemoryCallbacks);
+            mTrimMemoryContext = null;
+        }
+    }
+
+    /**
+     * 如果列表已经滑动到预创建距离内，就在后台线程创建还没有创建的延迟FooterView。
+     *
+     * @param recyclerView
+     */
+    private void prefetchFootersIfNeeded(RecyclerView recyclerView) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager == null || mVisibleFooterViewInfos.isEmpty()) {
+            return;
+        }
+
+        //找出当前显示的最大position，这样不依赖具体的LayoutManager，也不受reverseLayout影响。
+        int lastPosition = RecyclerView.NO_POSITION;
+        for (int i = 0; i < layoutManager.getChildCount(); i++) {
+            lastPosition = Math.max(lastPosition, layoutManager.getPosition(layoutManager.getChildAt(i)));
+        }
+        if (lastPosition == RecyclerView.NO_POSITION || lastPosition < getFooterStart() - mFooterPrefetchDistance) {
+            return;
+        }
+
+        for (final FixedViewInfo info : mVisibleFooterViewInfos) {
+            if (info.creator != null && info.view == null && !info.prefetching) {
+                info.prefetching = true;
+                AsyncFixedViewInflater.create(recyclerView, info.creator, new AsyncFixedViewInflater.Callback() {
+                    @Override
+                    public void onViewCreated(View view) {
+                        info.prefetching = false;
+                        //FooterView可能在创建期间已经被删除，或者已经在主线程创建了。
+                        if (info.view == null && mFixedViewInfos.get(info.itemViewType) == info) {
+                            info.view = view;
+                        }
+                    }
+                });
             }
+        }
+    }
 
-            //判断该viewType还没被使用，则返回。否则进行下一次循环，重新生成随机数。
-            if (!isExist) {
-                return viewType;
+    /**
+     * 查找View或FixedViewCreator对应的HeaderView或FooterView在列表中的下标，没有找到则返回-1。
+     *
+     * @param infos mHeaderViewInfos或mFooterViewInfos
+     * @param key   添加时使用的View或FixedViewCreator
+     * @return
+     */
+    private static int indexOfViewInfo(List<FixedViewInfo> infos, Object key) {
+        if (key == null) {
+            return -1;
+        }
+        for (int i = 0; i < infos.size(); i++) {
+            FixedViewInfo info = infos.get(i);
+            if (info.creator == key || (info.creator == null && info.view == key)) {
+                return i;
             }
         }
+        return -1;
+    }
+
+    private void onViewInfoAdded(FixedViewInfo info) {
+        mFixedViewInfos.put(info.itemViewType, info);
+        if (mRecyclerView != null && shouldKeepOutOfPool(info)) {
+            mRecyclerView.getRecycledViewPool().setMaxRecycledViews(info.itemViewType, 0);
+        }
     }
 
     /**
-     * 根据viewType查找对应的HeaderView 或 FooterView。没有找到则返回null。
+     * 判断HeaderView或FooterView的ViewHolder是否不能放进RecycledViewPool。
+     * 延迟创建的View不放进RecycledViewPool，离开缓存后就可以被回收；
+     * 共享RecycledViewPool时，HeaderView和FooterView的ViewHolder都不放进RecycledViewPool，避免被其他列表取走。
+     *
+     * @param info
+     * @return
+     */
+    private boolean shouldKeepOutOfPool(FixedViewInfo info) {
+        return info.creator != null || mRecycledViewPoolShared;
+    }
+
+    private void onViewInfoRemoved(FixedViewInfo info) {
+        mFixedViewInfos.remove(info.itemViewType);
+    }
+
+    /**
+     * 给HeaderView或FooterView设置FixedViewBinder。设置以后，HeaderView或FooterView被绑定或者局部更新时
+     * 都会回调{@link FixedViewBinder#onBindView(View, List)}，可以在里面直接更新View，而不需要重新布局整个列表项。
+     *
+     * @param view   已经添加的HeaderView或FooterView
+     * @param binder 传null表示移除
+     * @return 是否设置成功
+     */
+    public boolean setFixedViewBinder(View view, FixedViewBinder binder) {
+        FixedViewInfo info = findViewInfo(view);
+        if (info == null) {
+            return false;
+        }
+        info.binder = binder;
+        return true;
+    }
+
+    /**
+     * 通知HeaderView或FooterView需要局部更新。payload会传给{@link FixedViewBinder#onBindView(View, List)}。
+     *
+     * @param view    已经添加的HeaderView或FooterView
+     * @param payload 为null时使用{@link #PAYLOAD_FIXED_VIEW}，保证RecyclerView复用当前的ViewHolder，
+     *                因为同一个View不能同时被两个ViewHolder持有。
+     * @return 是否通知成功
+     */
+    public boolean notifyFixedViewChanged(View view, Object payload) {
+        return notifyFixedViewInfoChanged(view, payload);
+    }
+
+    /**
+     * 通知延迟创建的HeaderView或FooterView需要局部更新。
+     *
+     * @param creator 添加HeaderView或FooterView时使用的creator
+     * @param payload 为null时使用{@link #PAYLOAD_FIXED_VIEW}
+     * @return 是否通知成功
+     * @see #notifyFixedViewChanged(View, Object)
+     */
+    public boolean notifyFixedViewChanged(FixedViewCreator creator, Object payload) {
+        return notifyFixedViewInfoChanged(creator, payload);
+    }
+
+    private boolean notifyFixedViewInfoChanged(Object key, Object payload) {
+        checkMainThread();
+        int position = getFixedViewPosition(key);
+        if (position == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        if (mStickyHeaderDecoration != null && isHeader(position) && mVisibleHeaderViewInfos.get(position).sticky) {
+            //吸顶的HeaderView不在屏幕上时不会重新绑定，直接让缓存失效。
+            mStickyHeaderDecoration.invalidate();
+        }
+        notifyItemChanged(position, payload == null ? PAYLOAD_FIXED_VIEW : payload);
+        return true;
+    }
+
+    /**
+     * 获取HeaderView或FooterView在整个列表中的position，没有找到或者被隐藏则返回{@link RecyclerView#NO_POSITION}。
+     *
+     * @param key 添加时使用的View或FixedViewCreator
+     * @return
+     */
+    private int getFixedViewPosition(Object key) {
+        int index = indexOfViewInfo(mVisibleHeaderViewInfos, key);
+        if (index >= 0) {
+            return index;
+        }
+        index = indexOfViewInfo(mVisibleFooterViewInfos, key);
+        if (index >= 0) {
+            return getFooterStart() + index;
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * 根据View或FixedViewCreator查找对应的HeaderView 或 FooterView的信息。没有找到则返回null。
+     *
+     * @param key 添加时使用的View或FixedViewCreator
+     * @return
+     */
+    private FixedViewInfo findViewInfo(Object key) {
+        List<FixedViewInfo> headers = currentViewInfos(true);
+        int index = indexOfViewInfo(headers, key);
+        if (index >= 0) {
+            return headers.get(index);
+        }
+        List<FixedViewInfo> footers = currentViewInfos(false);
+        index = indexOfViewInfo(footers, key);
+        if (index >= 0) {
+            return footers.get(index);
+        }
+        return null;
+    }
+
+    /**
+     * 包装HeaderView或FooterView的数据，并为它分配一个唯一的viewType。
+     *
+     * @param view    外部传进来的View，延迟创建时为null
+     * @param creator 延迟创建View的creator，直接传入View时为null
+     * @return
+     */
+    private FixedViewInfo createViewInfo(View view, FixedViewCreator creator) {
+        if (view != null) {
+            updateDebuggable(view.getContext());
+        }
+        checkMainThread();
+        FixedViewInfo info = new FixedViewInfo();
+        info.view = view;
+        info.creator = creator;
+        info.itemViewType = generateUniqueViewType();
+        return info;
+    }
+
+    /**
+     * 获取第一个FooterView在整个列表中的position，也就是HeaderView和被包装的Adapter的列表项的总数。
      *
-     * @param viewType 查找的viewType
      * @return
      */
-    private View findViewForInfos(int viewType) {
-        for (FixedViewInfo info : mHeaderViewInfos) {
-            if (info.itemViewType == viewType) {
-                return info.view;
+    private int getFooterStart() {
+        return mVisibleHeaderViewInfos.size() + mDataCount;
+    }
+
+    /**
+     * 重新读取被包装的Adapter的列表项个数。
+     */
+    private void syncDataCount() {
+        mDataCount = mAdapter == null ? 0 : mAdapter.getItemCount();
+    }
+
+    /**
+     * 让HeaderViewAdapter跟随被包装的Adapter的状态恢复策略。
+     * RecyclerView判断PREVENT_WHEN_EMPTY时用的是HeaderViewAdapter的列表项个数，其中包含了HeaderView和FooterView，
+     * 所以PREVENT_WHEN_EMPTY要按被包装的Adapter的数据个数转换成PREVENT或者ALLOW。
+     */
+    private void syncStateRestorationPolicy() {
+        if (mAdapter == null) {
+            return;
+        }
+        StateRestorationPolicy policy = mAdapter.getStateRestorationPolicy();
+        if (policy == StateRestorationPolicy.PREVENT_WHEN_EMPTY) {
+            policy = mDataCount == 0 ? StateRestorationPolicy.PREVENT : StateRestorationPolicy.ALLOW;
+        }
+        if (policy != getStateRestorationPolicy()) {
+            setStateRestorationPolicy(policy);
+        }
+    }
+
+    /**
+     * 设置HeaderView和FooterView使用的viewType保留区间。被包装的Adapter不能使用这个区间内的viewType。
+     * 必须在添加任何HeaderView或FooterView之前调用。
+     *
+     * @param start 区间的起始值
+     * @param count 区间的大小，也就是最多可以分配的viewType个数
+     */
+    public void setFixedViewTypeRange(int start, int count) {
+        if (mAllocatedViewTypeCount > 0) {
+            throw new IllegalStateException("Fixed view type range must be set before adding any header or footer");
+        }
+        if (count <= 0 || (long) start + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid fixed view type range: start = " + start + ", count = " + count);
+        }
+        if (start <= RecyclerView.INVALID_TYPE && RecyclerView.INVALID_TYPE <= start + count - 1) {
+            throw new IllegalArgumentException("Fixed view type range cannot contain RecyclerView.INVALID_TYPE");
+        }
+        mFixedViewTypeStart = start;
+        mFixedViewTypeCount = count;
+        checkAdapterViewTypeRange();
+    }
+
+    /**
+     * 设置是否跟其他列表共享RecycledViewPool。
+     * 共享时，每个HeaderViewAdapter的HeaderView和FooterView使用独立的viewType命名空间，
+     * 并且它们的ViewHolder不会被放进RecycledViewPool，所以只有普通列表项的ViewHolder会在多个列表之间复用。
+     * 必须在添加任何HeaderView或FooterView之前调用。
+     *
+     * @param shared
+     */
+    public void setRecycledViewPoolShared(boolean shared) {
+        if (mAllocatedViewTypeCount > 0) {
+            throw new IllegalStateException("Shared pool mode must be set before adding any header or footer");
+        }
+        if (shared == mRecycledViewPoolShared) {
+            return;
+        }
+        if (shared) {
+            //在默认的保留区间里给这个HeaderViewAdapter分配一段独立的viewType，同时存在的HeaderViewAdapter不会分到同一段。
+            int namespace = ViewTypeNamespaces.acquire(this, DEFAULT_FIXED_VIEW_TYPE_COUNT / SHARED_POOL_VIEW_TYPE_COUNT);
+            try {
+                setFixedViewTypeRange(DEFAULT_FIXED_VIEW_TYPE_START + namespace * SHARED_POOL_VIEW_TYPE_COUNT,
+                        SHARED_POOL_VIEW_TYPE_COUNT);
+            } catch (IllegalArgumentException e) {
+                ViewTypeNamespaces.release(namespace);
+                throw e;
             }
+            mViewTypeNamespace = namespace;
+        } else {
+            setFixedViewTypeRange(DEFAULT_FIXED_VIEW_TYPE_START, DEFAULT_FIXED_VIEW_TYPE_COUNT);
+            ViewTypeNamespaces.release(mViewTypeNamespace);
+            mViewTypeNamespace = -1;
+        }
+        mRecycledViewPoolShared = shared;
+    }
+
+    /**
+     * 声明被包装的Adapter使用的viewType范围。如果这个范围跟HeaderView和FooterView的viewType保留区间冲突，
+     * 则抛出IllegalArgumentException。
+     *
+     * @param minViewType 被包装的Adapter使用的最小viewType
+     * @param maxViewType 被包装的Adapter使用的最大viewType
+     */
+    public void declareAdapterViewTypes(int minViewType, int maxViewType) {
+        if (minViewType > maxViewType) {
+            throw new IllegalArgumentException("minViewType > maxViewType");
+        }
+        mHasAdapterViewTypeRange = true;
+        mAdapterMinViewType = minViewType;
+        mAdapterMaxViewType = maxViewType;
+        checkAdapterViewTypeRange();
+    }
+
+    /**
+     * 检查被包装的Adapter声明的viewType范围是否跟保留区间有重叠。
+     */
+    private void checkAdapterViewTypeRange() {
+        if (!mHasAdapterViewTypeRange) {
+            return;
         }
+        int fixedMax = mFixedViewTypeStart + mFixedViewTypeCount - 1;
+        if (mAdapterMinViewType <= fixedMax && mFixedViewTypeStart <= mAdapterMaxViewType) {
+            throw new IllegalArgumentException("Adapter view types [" + mAdapterMinViewType + ", " + mAdapterMaxViewType
+                    + "] collide with the fixed view type range [" + mFixedViewTypeStart + ", " + fixedMax + "]");
+        }
+    }
 
-        for (FixedViewInfo info : mFooterViewInfos) {
-            if (info.itemViewType == viewType) {
-                return info.view;
+    /**
+     * 生成一个唯一的数，用于标识HeaderView或FooterView的type类型，并且保证类型不会重复。
+     * viewType从保留区间中依次分配，不需要遍历列表，同样的添加顺序总是得到同样的viewType。
+     * 保留区间用完以后，从头开始回收已经删除的HeaderView和FooterView的viewType，
+     * 所以只有在保留区间内的viewType同时都在使用时才会用完。
+     *
+     * @return
+     */
+    int generateUniqueViewType() {
+        if (mAllocatedViewTypeCount < mFixedViewTypeCount) {
+            return mFixedViewTypeStart + mAllocatedViewTypeCount++;
+        }
+        for (int i = 0; i < mFixedViewTypeCount; i++) {
+            int viewType = mFixedViewTypeStart + mReclaimViewTypeOffset;
+            mReclaimViewTypeOffset = (mReclaimViewTypeOffset + 1) % mFixedViewTypeCount;
+            if (mFixedViewInfos.get(viewType) == null) {
+                //RecycledViewPool里可能还留着这个viewType原来的ViewHolder，把它们清掉，避免被新的View取到。
+                if (mRecyclerView != null) {
+                    mRecyclerView.getRecycledViewPool().setMaxRecycledViews(viewType, 0);
+                }
+                return viewType;
             }
         }
+        throw new IllegalStateException("Fixed view type range is exhausted, count = " + mFixedViewTypeCount);
+    }
 
-        return null;
+    /**
+     * 判断viewType是否在HeaderView和FooterView已分配的viewType区间内。
+     *
+     * @param viewType
+     * @return
+     */
+    private boolean isFixedViewType(int viewType) {
+        //用long计算差值，保留区间从Integer.MIN_VALUE开始时int相减会溢出。
+        return viewType >= mFixedViewTypeStart && (long) viewType - mFixedViewTypeStart < mAllocatedViewTypeCount;
+    }
+
+    /**
+     * 根据viewType查找对应的HeaderView 或 FooterView的信息。没有找到则返回null。
+     * 普通列表项的viewType不在保留区间内，只需要一次区间判断就可以返回。
+     *
+     * @param viewType 查找的viewType
+     * @return
+     */
+    private FixedViewInfo findViewInfo(int viewType) {
+        if (!isFixedViewType(viewType)) {
+            return null;
+        }
+        return mFixedViewInfos.get(viewType);
     }
 
     @Override
@@ -309,28 +2233,76 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         if (holder instanceof ViewHolder) {
             super.onViewAttachedToWindow(holder);
         } else {
-            mAdapter.onViewAttachedToWindow(holder);
+            RecyclerView.Adapter adapter = getBoundAdapter(holder);
+            if (adapter != null) {
+                adapter.onViewAttachedToWindow(holder);
+            }
         }
+    }
 
-        //处理StaggeredGridLayout，保证HeaderView和FooterView占满一行。
-        if (isStaggeredGridLayout(holder)) {
-            handleLayoutIfStaggeredGridLayout(holder, holder.getLayoutPosition());
+    /**
+     * 处理StaggeredGridLayout，保证HeaderView和FooterView占满一行。
+     * 在创建和绑定的时候设置，这时HeaderView和FooterView还没有被测量，StaggeredGridLayoutManager第一次布局就能让它们占满一行。
+     * 结果按LayoutManager缓存在ViewHolder里，同一个LayoutManager下不会重复处理。
+     *
+     * @param holder
+     * @param layoutManager 当前RecyclerView的LayoutManager
+     */
+    private void applyFullSpanIfNeeded(ViewHolder holder, RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager == null || holder.fullSpanLayoutManager == layoutManager) {
+            return;
         }
+        holder.fullSpanLayoutManager = layoutManager;
+        setFullSpanIfNeeded(holder.itemView, layoutManager);
     }
 
-    private boolean isStaggeredGridLayout(RecyclerView.ViewHolder holder) {
-        ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
-        if (layoutParams != null && layoutParams instanceof StaggeredGridLayoutManager.LayoutParams) {
-            return true;
+    /**
+     * 使用StaggeredGridLayoutManager时，让itemView占满一行。其他LayoutManager不做处理。
+     *
+     * @param itemView
+     * @param layoutManager
+     */
+    static void setFullSpanIfNeeded(View itemView, RecyclerView.LayoutManager layoutManager) {
+        if (!(layoutManager instanceof StaggeredGridLayoutManager)) {
+            return;
         }
-        return false;
+
+        ViewGroup.LayoutParams layoutParams = itemView.getLayoutParams();
+        StaggeredGridLayoutManager.LayoutParams p;
+        if (layoutParams instanceof StaggeredGridLayoutManager.LayoutParams) {
+            p = (StaggeredGridLayoutManager.LayoutParams) layoutParams;
+        } else if (layoutParams == null) {
+            p = (StaggeredGridLayoutManager.LayoutParams) layoutManager.generateDefaultLayoutParams();
+        } else {
+            p = (StaggeredGridLayoutManager.LayoutParams) layoutManager.generateLayoutParams(layoutParams);
+        }
+        p.setFullSpan(true);
+        itemView.setLayoutParams(p);
     }
 
-    private void handleLayoutIfStaggeredGridLayout(RecyclerView.ViewHolder holder, int position) {
-        if (isHeader(position) || isFooter(position)) {
-            StaggeredGridLayoutManager.LayoutParams p = (StaggeredGridLayoutManager.LayoutParams)
-                    holder.itemView.getLayoutParams();
-            p.setFullSpan(true);
+    /**
+     * 通知adapter一段连续的列表项发生了移动。
+     * RecyclerView只支持单个item的移动，所以把整段的移动拆分成itemCount次单个移动，
+     * 并且保证每一次移动后剩下的item的位置仍然正确。
+     *
+     * @param adapter
+     * @param from      移动前第一项的position
+     * @param to        移动后第一项的position
+     * @param itemCount 移动的项数
+     */
+    static void notifyRangeMoved(RecyclerView.Adapter adapter, int from, int to, int itemCount) {
+        if (itemCount == 1) {
+            adapter.notifyItemMoved(from, to);
+            return;
+        }
+        if (from < to) {
+            for (int i = 0; i < itemCount; i++) {
+                adapter.notifyItemMoved(from, to + itemCount - 1);
+            }
+        } else {
+            for (int i = 0; i < itemCount; i++) {
+                adapter.notifyItemMoved(from + i, to + i);
+            }
         }
     }
 
@@ -339,21 +2311,59 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         if (holder instanceof ViewHolder) {
             super.onViewDetachedFromWindow(holder);
         } else {
-            mAdapter.onViewDetachedFromWindow(holder);
+            RecyclerView.Adapter adapter = getBoundAdapter(holder);
+            if (adapter != null) {
+                adapter.onViewDetachedFromWindow(holder);
+            }
         }
     }
 
     @Override
     public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        if (mMetrics != null) {
+            mMetrics.recordFailedRecycle(holder.getItemViewType());
+            if (mMetricsListener != null) {
+                mMetricsListener.onFailedToRecycleView(holder.getItemViewType());
+            }
+        }
         if (holder instanceof ViewHolder) {
+            boolean recycle = super.onFailedToRecycleView(holder);
+            if (!recycle) {
+                //RecyclerView会直接丢掉这个ViewHolder，不会再调用onViewRecycled。
+                releaseFixedView(holder);
+            }
+            return recycle;
+        }
+        RecyclerView.Adapter adapter = getBoundAdapter(holder);
+        if (adapter == null) {
             return super.onFailedToRecycleView(holder);
         } else {
-            return mAdapter.onFailedToRecycleView(holder);
+            return adapter.onFailedToRecycleView(holder);
         }
     }
 
     @Override
     public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        //被包装的Adapter可能在设置给RecyclerView之前就修改了数据而没有发出通知，这里重新读取一次。
+        syncDataCount();
+        syncStateRestorationPolicy();
+        mRecyclerView = recyclerView;
+        updateDebuggable(recyclerView.getContext());
+        if (mFooterPrefetchDistance >= 0) {
+            recyclerView.addOnScrollListener(mFooterPrefetchListener);
+        }
+        if (mStickyHeaderDecoration != null) {
+            recyclerView.addItemDecoration(mStickyHeaderDecoration);
+        }
+        if (mTrimMemoryEnabled) {
+            registerTrimMemoryCallbacks(recyclerView.getContext());
+        }
+        for (int i = 0; i < mFixedViewInfos.size(); i++) {
+            FixedViewInfo info = mFixedViewInfos.valueAt(i);
+            if (shouldKeepOutOfPool(info)) {
+                recyclerView.getRecycledViewPool().setMaxRecycledViews(info.itemViewType, 0);
+            }
+        }
         if(mAdapter != null) {
             mAdapter.onAttachedToRecyclerView(recyclerView);
         }
@@ -361,6 +2371,17 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     @Override
     public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) {
+            mRecyclerView = null;
+        }
+        recyclerView.removeOnScrollListener(mFooterPrefetchListener);
+        recyclerView.removeCallbacks(mLoadMoreRunnable);
+        mLoadMorePosted = false;
+        unregisterTrimMemoryCallbacks();
+        if (mStickyHeaderDecoration != null) {
+            recyclerView.removeItemDecoration(mStickyHeaderDecoration);
+            mStickyHeaderDecoration.release();
+        }
         if(mAdapter != null) {
             mAdapter.onDetachedFromRecyclerView(recyclerView);
         }
@@ -370,11 +2391,47 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     public void onViewRecycled(RecyclerView.ViewHolder holder) {
         if (holder instanceof ViewHolder) {
             super.onViewRecycled(holder);
+            FixedViewInfo info = mFixedViewInfos.get(holder.getItemViewType());
+            //ViewHolder接下来会被放进RecyclerView当前的RecycledViewPool，它可能是创建ViewHolder之后才替换的。
+            if (mRecyclerView != null && (info == null || shouldKeepOutOfPool(info))) {
+                mRecyclerView.getRecycledViewPool().setMaxRecycledViews(holder.getItemViewType(), 0);
+            }
+            releaseFixedView(holder);
         } else {
-            mAdapter.onViewRecycled(holder);
+            RecyclerView.Adapter adapter = getBoundAdapter(holder);
+            if (adapter != null) {
+                adapter.onViewRecycled(holder);
+            }
+        }
+    }
+
+    /**
+     * HeaderView或FooterView的ViewHolder不再使用时调用。延迟创建的View会释放对它的引用，下次需要显示的时候重新创建。
+     *
+     * @param holder
+     */
+    private void releaseFixedView(RecyclerView.ViewHolder holder) {
+        FixedViewInfo info = mFixedViewInfos.get(holder.getItemViewType());
+        if (info != null && info.view == holder.itemView) {
+            info.inUse = false;
+            //吸顶的HeaderView需要一直保留，用于绘制固定在顶部的图像。
+            if (info.creator != null && !info.sticky) {
+                info.view = null;
+            }
         }
     }
 
+    /**
+     * 获取绑定普通列表项的ViewHolder的Adapter。替换Adapter以后，旧的ViewHolder仍然属于旧的Adapter。
+     *
+     * @param holder
+     * @return 没有绑定过的ViewHolder返回当前的Adapter，可能为null
+     */
+    private RecyclerView.Adapter getBoundAdapter(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = mBoundAdapters.get(holder);
+        return adapter != null ? adapter : mAdapter;
+    }
+
     /**
      * 用于包装HeaderView和FooterView的数据类
      */
@@ -384,9 +2441,161 @@ public class HeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
         //保存HeaderView或FooterView对应的viewType。
         int itemViewType;
+
+        //HeaderView或FooterView的绑定回调，可以为null。
+        FixedViewBinder binder;
+
+        //延迟创建HeaderView或FooterView的creator。直接传入View的为null。
+        FixedViewCreator creator;
+
+        //是否正在后台线程预创建View。
+        boolean prefetching;
+
+        //是否显示。隐藏时仍然保留viewType和在HeaderView或FooterView中的顺序。
+        boolean visible = true;
+
+        //是否吸顶，只对HeaderView有效。
+        boolean sticky;
+
+        //view是否被ViewHolder持有。没有被持有的延迟创建的View可以在内存不足时释放。
+        boolean inUse;
+    }
+
+    /**
+     * 把DiffUtil计算出来的变化加上偏移量以后通知RecyclerView。
+     */
+    private class OffsetListUpdateCallback implements ListUpdateCallback {
+
+        private final int mOffset;
+
+        OffsetListUpdateCallback(int offset) {
+            mOffset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            notifyItemRangeInserted(mOffset + position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(mOffset + position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(mOffset + fromPosition, mOffset + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            notifyItemRangeChanged(mOffset + position, count, payload);
+        }
+    }
+
+    /**
+     * 在一次批量更新中修改HeaderView和FooterView。
+     *
+     * @see #runInTransaction(Transaction)
+     */
+    public interface Transaction {
+        void run(HeaderViewAdapter adapter);
+    }
+
+    /**
+     * 释放HeaderView和FooterView后的回调。
+     */
+    public interface OnFixedViewsTrimmedListener {
+        /**
+         * 在内存不足时释放了HeaderView或FooterView，在主线程回调。
+         *
+         * @param level     {@link ComponentCallbacks2#onTrimMemory(int)}的level
+         * @param viewCount 释放的View的个数
+         */
+        void onFixedViewsTrimmed(int level, int viewCount);
+    }
+
+    /**
+     * 加载更多的FooterView。
+     */
+    public interface LoadMoreFooter extends FixedViewCreator {
+        /**
+         * 把加载更多的状态显示到FooterView上。FooterView每次绑定和状态变化时都会回调。
+         *
+         * @param view  FooterView
+         * @param state 当前的加载更多状态
+         */
+        void onBindState(View view, int state);
+    }
+
+    /**
+     * 加载更多的回调。
+     */
+    public interface OnLoadMoreListener {
+        /**
+         * 需要加载下一页数据，在主线程回调。
+         */
+        void onLoadMore();
+    }
+
+    /**
+     * 异步添加HeaderView或FooterView的回调。
+     */
+    public interface OnFixedViewCreatedListener {
+        /**
+         * HeaderView或FooterView已经创建并添加到列表，在主线程回调。
+         *
+         * @param view
+         */
+        void onFixedViewCreated(View view);
+    }
+
+    /**
+     * 用于延迟创建HeaderView和FooterView。
+     */
+    public interface FixedViewCreator {
+        /**
+         * 创建HeaderView或FooterView
+         *
+         * @param parent RecyclerView
+         * @return
+         */
+        View onCreateView(ViewGroup parent);
+    }
+
+    /**
+     * 通过布局id创建HeaderView和FooterView的FixedViewCreator。
+     */
+    public static class LayoutViewCreator implements FixedViewCreator {
+
+        private final int mLayoutId;
+
+        public LayoutViewCreator(@LayoutRes int layoutId) {
+            mLayoutId = layoutId;
+        }
+
+        @Override
+        public View onCreateView(ViewGroup parent) {
+            return LayoutInflater.from(parent.getContext()).inflate(mLayoutId, parent, false);
+        }
+    }
+
+    /**
+     * HeaderView和FooterView的绑定回调。HeaderView和FooterView是由外部传进来的，列表不会去更新它们，
+     * 如果需要在绑定或者局部更新时修改它们，可以通过{@link #setFixedViewBinder(View, FixedViewBinder)}设置这个回调。
+     */
+    public interface FixedViewBinder {
+        /**
+         * @param view     HeaderView或FooterView
+         * @param payloads 局部更新的数据，为空表示完整绑定
+         */
+        void onBindView(View view, List<Object> payloads);
     }
 
     private static class ViewHolder extends RecyclerView.ViewHolder {
+        //已经处理过占满一行的LayoutManager。
+        RecyclerView.LayoutManager fullSpanLayoutManager;
+
         ViewHolder(View itemView) {
             super(itemView);
         }
@@ -0,0 +1,255 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.util.SparseArray;
+
+import java.util.Arrays;
+
+/**
+ * Depiction: HeaderViewAdapterMetrics记录{@link HeaderViewAdapter}的运行数据，用于定位列表滑动卡顿的来源。
+ * 包括每个viewType的onCreateViewHolder和onBindViewHolder的次数和耗时分布、
+ * notifyDataSetChanged和局部通知的次数，以及onFailedToRecycleView的次数。
+ * 通过{@link HeaderViewAdapter#setMetricsEnabled(boolean)}开启，只能在主线程访问。
+ */
+public final class HeaderViewAdapterMetrics {
+
+    //耗时分布的区间上限(纳秒)。第i个区间是[BUCKET_BOUNDS_NANOS[i-1], BUCKET_BOUNDS_NANOS[i])，
+    //最后一个区间是[32ms, +∞)，所以一共有BUCKET_BOUNDS_NANOS.length + 1个区间。
+    public static final long[] BUCKET_BOUNDS_NANOS = {
+            250000L, 500000L, 1000000L, 2000000L, 4000000L, 8000000L, 16000000L, 32000000L
+    };
+
+    private final SparseArray<ViewTypeMetrics> mViewTypeMetrics = new SparseArray<>();
+
+    private long mFullNotifyCount;
+    private long mGranularNotifyCount;
+    private long mFailedRecycleCount;
+
+    HeaderViewAdapterMetrics() {
+    }
+
+    void recordCreate(int viewType, long durationNanos) {
+        ViewTypeMetrics metrics = obtain(viewType);
+        metrics.mCreateCount++;
+        metrics.mCreateNanos += durationNanos;
+        metrics.mCreateHistogram[bucketOf(durationNanos)]++;
+    }
+
+    void recordBind(int viewType, long durationNanos) {
+        ViewTypeMetrics metrics = obtain(viewType);
+        metrics.mBindCount++;
+        metrics.mBindNanos += durationNanos;
+        metrics.mBindHistogram[bucketOf(durationNanos)]++;
+    }
+
+    void recordNotify(boolean full) {
+        if (full) {
+            mFullNotifyCount++;
+        } else {
+            mGranularNotifyCount++;
+        }
+    }
+
+    void recordFailedRecycle(int viewType) {
+        obtain(viewType).mFailedRecycleCount++;
+        mFailedRecycleCount++;
+    }
+
+    /**
+     * 获取viewType对应的数据，每个viewType只在第一次出现时创建一次。
+     *
+     * @param viewType
+     * @return
+     */
+    private ViewTypeMetrics obtain(int viewType) {
+        ViewTypeMetrics metrics = mViewTypeMetrics.get(viewType);
+        if (metrics == null) {
+            metrics = new ViewTypeMetrics(viewType);
+            mViewTypeMetrics.put(viewType, metrics);
+        }
+        return metrics;
+    }
+
+    private static int bucketOf(long durationNanos) {
+        for (int i = 0; i < BUCKET_BOUNDS_NANOS.length; i++) {
+            if (durationNanos < BUCKET_BOUNDS_NANOS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_NANOS.length;
+    }
+
+    /**
+     * 获取记录过的viewType的个数
+     *
+     * @return
+     */
+    public int getViewTypeCount() {
+        return mViewTypeMetrics.size();
+    }
+
+    /**
+     * 按下标获取某个viewType的数据，下标范围是[0, getViewTypeCount())。
+     *
+     * @param index
+     * @return
+     */
+    public ViewTypeMetrics getViewTypeMetricsAt(int index) {
+        return mViewTypeMetrics.valueAt(index);
+    }
+
+    /**
+     * 获取某个viewType的数据，没有记录过则返回null。
+     *
+     * @param viewType
+     * @return
+     */
+    public ViewTypeMetrics getViewTypeMetrics(int viewType) {
+        return mViewTypeMetrics.get(viewType);
+    }
+
+    /**
+     * 获取notifyDataSetChanged的次数，包括被包装的Adapter转发过来的。
+     *
+     * @return
+     */
+    public long getFullNotifyCount() {
+        return mFullNotifyCount;
+    }
+
+    /**
+     * 获取局部通知(插入、删除、移动和修改)的次数，包括被包装的Adapter转发过来的。
+     *
+     * @return
+     */
+    public long getGranularNotifyCount() {
+        return mGranularNotifyCount;
+    }
+
+    /**
+     * 获取onFailedToRecycleView的次数
+     *
+     * @return
+     */
+    public long getFailedRecycleCount() {
+        return mFailedRecycleCount;
+    }
+
+    /**
+     * 清空所有数据
+     */
+    public void reset() {
+        mViewTypeMetrics.clear();
+        mFullNotifyCount = 0;
+        mGranularNotifyCount = 0;
+        mFailedRecycleCount = 0;
+    }
+
+    /**
+     * 某个viewType的运行数据
+     */
+    public static final class ViewTypeMetrics {
+
+        private final int mViewType;
+
+        private long mCreateCount;
+        private long mCreateNanos;
+        private final long[] mCreateHistogram = new long[BUCKET_BOUNDS_NANOS.length + 1];
+
+        private long mBindCount;
+        private long mBindNanos;
+        private final long[] mBindHistogram = new long[BUCKET_BOUNDS_NANOS.length + 1];
+
+        private long mFailedRecycleCount;
+
+        ViewTypeMetrics(int viewType) {
+            mViewType = viewType;
+        }
+
+        public int getViewType() {
+            return mViewType;
+        }
+
+        public long getCreateCount() {
+            return mCreateCount;
+        }
+
+        /**
+         * 获取onCreateViewHolder的总耗时(纳秒)
+         *
+         * @return
+         */
+        public long getCreateNanos() {
+            return mCreateNanos;
+        }
+
+        /**
+         * 获取onCreateViewHolder的耗时分布，区间见{@link #BUCKET_BOUNDS_NANOS}。
+         *
+         * @return 复制出来的数组
+         */
+        public long[] getCreateHistogram() {
+            return Arrays.copyOf(mCreateHistogram, mCreateHistogram.length);
+        }
+
+        public long getBindCount() {
+            return mBindCount;
+        }
+
+        /**
+         * 获取onBindViewHolder的总耗时(纳秒)
+         *
+         * @return
+         */
+        public long getBindNanos() {
+            return mBindNanos;
+        }
+
+        /**
+         * 获取onBindViewHolder的耗时分布，区间见{@link #BUCKET_BOUNDS_NANOS}。
+         *
+         * @return 复制出来的数组
+         */
+        public long[] getBindHistogram() {
+            return Arrays.copyOf(mBindHistogram, mBindHistogram.length);
+        }
+
+        public long getFailedRecycleCount() {
+            return mFailedRecycleCount;
+        }
+    }
+
+    /**
+     * 运行数据的实时回调，在主线程回调。
+     */
+    public interface Listener {
+        /**
+         * onCreateViewHolder完成
+         *
+         * @param viewType
+         * @param durationNanos 耗时(纳秒)
+         */
+        void onViewHolderCreated(int viewType, long durationNanos);
+
+        /**
+         * onBindViewHolder完成
+         *
+         * @param viewType
+         * @param durationNanos 耗时(纳秒)
+         */
+        void onViewHolderBound(int viewType, long durationNanos);
+
+        /**
+         * HeaderViewAdapter发出了通知
+         *
+         * @param full 是否是notifyDataSetChanged
+         */
+        void onNotify(boolean full);
+
+        /**
+         * onFailedToRecycleView被调用
+         *
+         * @param viewType
+         */
+        void onFailedToRecycleView(int viewType);
+    }
+}
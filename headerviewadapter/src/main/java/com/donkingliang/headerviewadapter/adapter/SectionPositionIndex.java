@@ -0,0 +1,129 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import java.util.Arrays;
+
+/**
+ * Depiction: 用树状数组（Fenwick树）保存每个分组的项数，用于在全局position和分组之间互相转换。
+ * 修改某个分组的项数、查询分组的起始position、查找position所在的分组都是O(log n)的。
+ * 插入和删除分组时会重建整个树，这是O(n)的，但分组的增删远比数据变化少。
+ */
+final class SectionPositionIndex {
+
+    //每个分组的项数。
+    private int[] mSizes = new int[0];
+
+    //树状数组，下标从1开始，mTree[i]保存(i - lowbit(i), i]范围内分组的项数之和。
+    private int[] mTree = new int[1];
+
+    private int mCount;
+
+    /**
+     * 分组的个数
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * 所有分组的项数之和
+     */
+    int getTotal() {
+        return getStart(mCount);
+    }
+
+    /**
+     * 获取分组的项数
+     *
+     * @param index 分组的下标
+     */
+    int getSize(int index) {
+        return mSizes[index];
+    }
+
+    /**
+     * 在index处插入一个分组，后面的分组往后移。
+     *
+     * @param index 分组的下标
+     * @param size  分组的项数
+     */
+    void insert(int index, int size) {
+        if (mCount == mSizes.length) {
+            mSizes = Arrays.copyOf(mSizes, Math.max(4, mCount * 2));
+        }
+        System.arraycopy(mSizes, index, mSizes, index + 1, mCount - index);
+        mSizes[index] = size;
+        mCount++;
+        rebuild();
+    }
+
+    /**
+     * 删除index处的分组，后面的分组往前移。
+     *
+     * @param index 分组的下标
+     */
+    void remove(int index) {
+        System.arraycopy(mSizes, index + 1, mSizes, index, mCount - index - 1);
+        mCount--;
+        rebuild();
+    }
+
+    /**
+     * 修改分组的项数
+     *
+     * @param index 分组的下标
+     * @param delta 增加的项数，减少时为负数
+     */
+    void add(int index, int delta) {
+        mSizes[index] += delta;
+        for (int i = index + 1; i <= mCount; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * 获取分组的起始position，也就是它前面所有分组的项数之和。
+     *
+     * @param index 分组的下标，传入分组的个数时返回所有分组的项数之和
+     */
+    int getStart(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 查找position所在的分组。项数为0的分组会被跳过。
+     *
+     * @param position 全局的position，必须在[0, getTotal())范围内
+     * @return 分组的下标
+     */
+    int findIndex(int position) {
+        int index = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(Math.max(1, mCount)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= mCount && mTree[next] <= remaining) {
+                index = next;
+                remaining -= mTree[next];
+            }
+        }
+        return index;
+    }
+
+    private void rebuild() {
+        if (mTree.length < mCount + 1) {
+            mTree = new int[mSizes.length + 1];
+        } else {
+            Arrays.fill(mTree, 0);
+        }
+        for (int i = 1; i <= mCount; i++) {
+            mTree[i] += mSizes[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= mCount) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Depiction: SectionedHeaderViewAdapter把多个Adapter按顺序拼接成一个列表，每个Adapter是一个分组，
+ * 每个分组可以有自己的HeaderView和FooterView。
+ * <p>
+ * 全局position和分组内position的转换通过{@link SectionPositionIndex}完成，是O(log n)的，n是分组的个数。
+ * 分组的项数由每个Adapter的数据变化通知增量更新，不需要遍历所有分组。
+ * 每个分组的viewType都会被映射成独立的全局viewType，不同分组的Adapter使用相同的viewType也不会冲突，
+ * 也不会共用ViewHolder。被包装的Adapter在onBindViewHolder中通过holder.getItemViewType()拿到的是全局的viewType。
+ * <p>
+ * 需要整个列表的HeaderView和FooterView时，可以再用{@link HeaderViewAdapter}包装一层。
+ * 使用GridLayoutManager时，可以通过{@link #isSectionHeader(int)}和{@link #isSectionFooter(int)}让分组的HeaderView和FooterView占满一行。
+ * 暂不支持稳定ID。
+ */
+public class SectionedHeaderViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    //所有分组，按显示顺序排列。
+    private final List<Section> mSections = new ArrayList<>();
+
+    //每个分组的项数（包括分组的HeaderView和FooterView），用于position的转换。
+    private final SectionPositionIndex mPositionIndex = new SectionPositionIndex();
+
+    //全局viewType到分组和分组内viewType的映射。
+    private final SparseArray<ViewTypeInfo> mViewTypeInfos = new SparseArray<>();
+
+    //下一个分配的全局viewType。全局viewType只增不减，删除分组后不会被重复使用。
+    private int mNextViewType;
+
+    //已经删除的分组的数据项viewType的映射。全局viewType不会被重复使用，还没有回收的ViewHolder通过这里找到原来的Adapter，
+    //在HeaderViewAdapter从RecyclerView上移除时清空。
+    private final SparseArray<ViewTypeInfo> mRetiredViewTypeInfos = new SparseArray<>();
+
+    //当前绑定的RecyclerView。
+    private RecyclerView mRecyclerView;
+
+    /**
+     * 在末尾添加一个没有HeaderView和FooterView的分组
+     *
+     * @param adapter 分组的Adapter
+     */
+    public void addSection(RecyclerView.Adapter adapter) {
+        addSection(mSections.size(), null, adapter, null);
+    }
+
+    /**
+     * 在末尾添加一个分组
+     *
+     * @param header  分组的HeaderView，可以为null
+     * @param adapter 分组的Adapter
+     * @param footer  分组的FooterView，可以为null
+     */
+    public void addSection(View header, RecyclerView.Adapter adapter, View footer) {
+        addSection(mSections.size(), header, adapter, footer);
+    }
+
+    /**
+     * 在指定位置添加一个分组
+     *
+     * @param index   分组的下标
+     * @param header  分组的HeaderView，可以为null
+     * @param adapter 分组的Adapter
+     * @param footer  分组的FooterView，可以为null
+     */
+    public void addSection(int index, View header, RecyclerView.Adapter adapter, View footer) {
+        if (adapter == null) {
+            throw new IllegalArgumentException("adapter can not be null");
+        }
+        if (indexOfSection(adapter) >= 0) {
+            throw new IllegalArgumentException("The adapter has already been added");
+        }
+        if (index < 0 || index > mSections.size()) {
+            throw new IndexOutOfBoundsException("index = " + index + ", section count = " + mSections.size());
+        }
+
+        Section section = new Section(adapter);
+        section.itemCount = adapter.getItemCount();
+        if (header != null) {
+            section.headerView = header;
+            section.headerViewType = allocateViewType(section, 0, header);
+        }
+        if (footer != null) {
+            section.footerView = footer;
+            section.footerViewType = allocateViewType(section, 0, footer);
+        }
+
+        mSections.add(index, section);
+        reindexSections(index);
+        mPositionIndex.insert(index, section.getSize());
+
+        adapter.registerAdapterDataObserver(section.observer);
+        if (mRecyclerView != null) {
+            adapter.onAttachedToRecyclerView(mRecyclerView);
+        }
+
+        if (section.getSize() > 0) {
+            notifyItemRangeInserted(mPositionIndex.getStart(index), section.getSize());
+        }
+    }
+
+    /**
+     * 删除分组
+     *
+     * @param adapter 分组的Adapter
+     * @return 是否删除成功
+     */
+    public boolean removeSection(RecyclerView.Adapter adapter) {
+        int index = indexOfSection(adapter);
+        if (index < 0) {
+            return false;
+        }
+
+        Section section = mSections.get(index);
+        int start = mPositionIndex.getStart(index);
+        int size = section.getSize();
+
+        mSections.remove(index);
+        reindexSections(index);
+        mPositionIndex.remove(index);
+
+        section.adapter.unregisterAdapterDataObserver(section.observer);
+        if (mRecyclerView != null) {
+            section.adapter.onDetachedFromRecyclerView(mRecyclerView);
+        }
+        for (int i = mViewTypeInfos.size() - 1; i >= 0; i--) {
+            ViewTypeInfo info = mViewTypeInfos.valueAt(i);
+            if (info.section == section) {
+                int viewType = mViewTypeInfos.keyAt(i);
+                //删除的分组的viewType不会再使用，让RecycledViewPool丢掉它们的ViewHolder，不再保留分组的View。
+                if (mRecyclerView != null) {
+                    mRecyclerView.getRecycledViewPool().setMaxRecycledViews(viewType, 0);
+                    if (info.fixedView == null) {
+                        mRetiredViewTypeInfos.put(viewType, info);
+                    }
+                }
+                mViewTypeInfos.removeAt(i);
+            }
+        }
+
+        if (size > 0) {
+            notifyItemRangeRemoved(start, size);
+        }
+        return true;
+    }
+
+    /**
+     * 获取分组的个数
+     *
+     * @return
+     */
+    public int getSectionCount() {
+        return mSections.size();
+    }
+
+    /**
+     * 获取分组的Adapter
+     *
+     * @param index 分组的下标
+     * @return
+     */
+    public RecyclerView.Adapter getSectionAdapter(int index) {
+        return mSections.get(index).adapter;
+    }
+
+    /**
+     * 查找position所在的分组
+     *
+     * @param position 列表的position
+     * @return 分组的下标
+     */
+    public int getSectionIndex(int position) {
+        return mPositionIndex.findIndex(position);
+    }
+
+    /**
+     * 获取分组在列表中的起始position，也就是分组的HeaderView的position（没有HeaderView时是第一个数据项的position）。
+     *
+     * @param index 分组的下标
+     * @return
+     */
+    public int getSectionStart(int index) {
+        return mPositionIndex.getStart(index);
+    }
+
+    /**
+     * 把列表的position转换成分组的Adapter中的position
+     *
+     * @param position 列表的position
+     * @return 如果position是分组的HeaderView或FooterView，返回{@link RecyclerView#NO_POSITION}
+     */
+    public int getPositionInSection(int position) {
+        int index = mPositionIndex.findIndex(position);
+        Section section = mSections.get(index);
+        int offset = position - mPositionIndex.getStart(index) - section.getHeaderCount();
+        return offset >= 0 && offset < section.itemCount ? offset : RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * 判断position是否是分组的HeaderView
+     *
+     * @param position
+     * @return
+     */
+    public boolean isSectionHeader(int position) {
+        int index = mPositionIndex.findIndex(position);
+        return mSections.get(index).headerView != null && position == mPositionIndex.getStart(index);
+    }
+
+    /**
+     * 判断position是否是分组的FooterView
+     *
+     * @param position
+     * @return
+     */
+    public boolean isSectionFooter(int position) {
+        int index = mPositionIndex.findIndex(position);
+        return mSections.get(index).footerView != null && position == mPositionIndex.getStart(index + 1) - 1;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mPositionIndex.getTotal();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        int index = mPositionIndex.findIndex(position);
+        Section section = mSections.get(index);
+        int offset = position - mPositionIndex.getStart(index);
+        if (section.headerView != null) {
+            if (offset == 0) {
+                return section.headerViewType;
+            }
+            offset--;
+        }
+        if (offset >= section.itemCount) {
+            return section.footerViewType;
+        }
+
+        //把分组的Adapter的viewType映射成全局的viewType，第一次遇到时分配。
+        int localViewType = section.adapter.getItemViewType(offset);
+        int typeIndex = section.viewTypes.indexOfKey(localViewType);
+        if (typeIndex >= 0) {
+            return section.viewTypes.valueAt(typeIndex);
+        }
+        int viewType = allocateViewType(section, localViewType, null);
+        section.viewTypes.put(localViewType, viewType);
+        return viewType;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        ViewTypeInfo info = mViewTypeInfos.get(viewType);
+        if (info == null) {
+            throw new IllegalStateException("Unknown view type " + viewType);
+        }
+        if (info.fixedView != null) {
+            FixedViewHolder holder = new FixedViewHolder(info.fixedView);
+            if (parent instanceof RecyclerView) {
+                HeaderViewAdapter.setFullSpanIfNeeded(holder.itemView, ((RecyclerView) parent).getLayoutManager());
+            }
+            return holder;
+        }
+        return info.section.adapter.onCreateViewHolder(parent, info.localViewType);
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        onBindViewHolder(holder, position, Collections.emptyList());
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        if (holder instanceof FixedViewHolder) {
+            return;
+        }
+        int index = mPositionIndex.findIndex(position);
+        Section section = mSections.get(index);
+        int offset = position - mPositionIndex.getStart(index) - section.getHeaderCount();
+        section.adapter.onBindViewHolder(holder, offset, payloads);
+    }
+
+    @Override
+    public int findRelativeAdapterPositionIn(RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter,
+                                             RecyclerView.ViewHolder viewHolder, int localPosition) {
+        if (adapter == this) {
+            return localPosition;
+        }
+        //让getBindingAdapterPosition()返回分组内的position。
+        ViewTypeInfo info = mViewTypeInfos.get(viewHolder.getItemViewType());
+        if (info == null || info.section.adapter != adapter || info.fixedView != null) {
+            return RecyclerView.NO_POSITION;
+        }
+        return getPositionInSection(localPosition);
+    }
+
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = findAdapter(holder);
+        if (adapter != null) {
+            adapter.onViewRecycled(holder);
+        }
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = findAdapter(holder);
+        if (adapter != null) {
+            return adapter.onFailedToRecycleView(holder);
+        }
+        return super.onFailedToRecycleView(holder);
+    }
+
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = findAdapter(holder);
+        if (adapter != null) {
+            adapter.onViewAttachedToWindow(holder);
+        }
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = findAdapter(holder);
+        if (adapter != null) {
+            adapter.onViewDetachedFromWindow(holder);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        for (Section section : mSections) {
+            section.adapter.onAttachedToRecyclerView(recyclerView);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) {
+            mRecyclerView = null;
+        }
+        //RecyclerView移除Adapter之前已经回收了所有的ViewHolder，不再需要删除的分组的映射。
+        mRetiredViewTypeInfos.clear();
+        for (Section section : mSections) {
+            section.adapter.onDetachedFromRecyclerView(recyclerView);
+        }
+    }
+
+    /**
+     * 查找ViewHolder所属分组的Adapter。已经删除的分组的ViewHolder仍然返回原来的Adapter，
+     * 让它可以在回调中释放资源。分组的HeaderView和FooterView返回null。
+     */
+    @SuppressWarnings("unchecked")
+    private RecyclerView.Adapter<RecyclerView.ViewHolder> findAdapter(RecyclerView.ViewHolder holder) {
+        if (holder instanceof FixedViewHolder) {
+            return null;
+        }
+        ViewTypeInfo info = mViewTypeInfos.get(holder.getItemViewType());
+        if (info == null) {
+            info = mRetiredViewTypeInfos.get(holder.getItemViewType());
+        }
+        return info != null ? info.section.adapter : null;
+    }
+
+    private int indexOfSection(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mSections.size(); i++) {
+            if (mSections.get(i).adapter == adapter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void reindexSections(int from) {
+        for (int i = from; i < mSections.size(); i++) {
+            mSections.get(i).index = i;
+        }
+    }
+
+    private int allocateViewType(Section section, int localViewType, View fixedView) {
+        int viewType = mNextViewType++;
+        mViewTypeInfos.put(viewType, new ViewTypeInfo(section, localViewType, fixedView));
+        return viewType;
+    }
+
+    /**
+     * 一个分组
+     */
+    private class Section {
+        final RecyclerView.Adapter<RecyclerView.ViewHolder> adapter;
+
+        //把分组的Adapter的数据变化转换成整个列表的变化。
+        final RecyclerView.AdapterDataObserver observer = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                int oldCount = itemCount;
+                int newCount = adapter.getItemCount();
+                int start = getDataStart();
+                itemCount = newCount;
+                mPositionIndex.add(index, newCount - oldCount);
+
+                //不知道具体哪些数据变了，只刷新这个分组，不影响其他分组。
+                int changedCount = Math.min(oldCount, newCount);
+                if (changedCount > 0) {
+                    notifyItemRangeChanged(start, changedCount);
+                }
+                if (newCount > oldCount) {
+                    notifyItemRangeInserted(start + oldCount, newCount - oldCount);
+                } else if (oldCount > newCount) {
+                    notifyItemRangeRemoved(start + newCount, oldCount - newCount);
+                }
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                notifyItemRangeChanged(getDataStart() + positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                notifyItemRangeChanged(getDataStart() + positionStart, itemCount, payload);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int count) {
+                Section.this.itemCount += count;
+                mPositionIndex.add(index, count);
+                notifyItemRangeInserted(getDataStart() + positionStart, count);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int count) {
+                Section.this.itemCount -= count;
+                mPositionIndex.add(index, -count);
+                notifyItemRangeRemoved(getDataStart() + positionStart, count);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                HeaderViewAdapter.notifyRangeMoved(SectionedHeaderViewAdapter.this,
+                        getDataStart() + fromPosition, getDataStart() + toPosition, itemCount);
+            }
+        };
+
+        //分组在mSections中的下标。
+        int index;
+
+        //分组的Adapter的数据项个数的缓存，由observer增量更新。
+        int itemCount;
+
+        View headerView;
+        int headerViewType;
+        View footerView;
+        int footerViewType;
+
+        //分组的Adapter的viewType到全局viewType的映射。
+        final SparseIntArray viewTypes = new SparseIntArray();
+
+        @SuppressWarnings("unchecked")
+        Section(RecyclerView.Adapter adapter) {
+            this.adapter = adapter;
+        }
+
+        int getHeaderCount() {
+            return headerView != null ? 1 : 0;
+        }
+
+        int getSize() {
+            return getHeaderCount() + itemCount + (footerView != null ? 1 : 0);
+        }
+
+        //分组的第一个数据项在列表中的position。
+        int getDataStart() {
+            return mPositionIndex.getStart(index) + getHeaderCount();
+        }
+    }
+
+    /**
+     * 全局viewType对应的分组和分组内的viewType
+     */
+    private static class ViewTypeInfo {
+        final Section section;
+        final int localViewType;
+
+        //分组的HeaderView或FooterView，普通数据项为null。
+        final View fixedView;
+
+        ViewTypeInfo(Section section, int localViewType, View fixedView) {
+            this.section = section;
+            this.localViewType = localViewType;
+            this.fixedView = fixedView;
+        }
+    }
+
+    private static class FixedViewHolder extends RecyclerView.ViewHolder {
+        FixedViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+}
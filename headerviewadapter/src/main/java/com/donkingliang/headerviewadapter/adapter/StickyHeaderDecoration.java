@@ -0,0 +1,157 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Depiction: 在列表顶部绘制吸顶的HeaderView。
+ * <p>
+ * 吸顶的HeaderView会被绘制到一个Bitmap里缓存起来，之后每一帧只绘制这个Bitmap，不需要重新创建和测量View。
+ * 只有在HeaderView重新绑定、调用了notifyFixedViewChanged或者大小发生变化时才会重新绘制缓存。
+ * 需要吸顶的HeaderView的position直接从HeaderViewAdapter的划分中获取，滑动时不会遍历列表。
+ * <p>
+ * 绘制出来的只是HeaderView的图像，不能响应点击事件。
+ */
+final class StickyHeaderDecoration extends RecyclerView.ItemDecoration implements View.OnLayoutChangeListener {
+
+    private final HeaderViewAdapter mAdapter;
+
+    //用于把HeaderView绘制到mBitmap上，重复使用。
+    private final Canvas mBitmapCanvas = new Canvas();
+
+    //当前缓存的HeaderView和它的图像。
+    private View mCachedView;
+    private Bitmap mBitmap;
+
+    //缓存是否需要重新绘制。
+    private boolean mDirty = true;
+
+    StickyHeaderDecoration(HeaderViewAdapter adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * 标记缓存需要重新绘制，在下一次绘制时生效。
+     */
+    void invalidate() {
+        mDirty = true;
+    }
+
+    /**
+     * 获取当前缓存的HeaderView，也就是正在或者最近一次吸顶显示的HeaderView。
+     */
+    View getCachedView() {
+        return mCachedView;
+    }
+
+    /**
+     * 释放缓存的图像和对HeaderView的引用。
+     */
+    void release() {
+        setCachedView(null);
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (parent.getChildCount() == 0) {
+            return;
+        }
+
+        View first = parent.getChildAt(0);
+        int firstPosition = parent.getChildAdapterPosition(first);
+        if (firstPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int position = mAdapter.findStickyHeaderPosition(firstPosition);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        //吸顶的HeaderView本身还完整地显示在顶部，不需要绘制。
+        if (position == firstPosition && first.getTop() >= parent.getPaddingTop()) {
+            return;
+        }
+
+        Bitmap bitmap = getBitmap(mAdapter.getHeaderView(position));
+        if (bitmap == null) {
+            return;
+        }
+
+        //下一个吸顶的HeaderView滑到顶部时，把当前的HeaderView推上去。
+        int top = parent.getPaddingTop();
+        int next = mAdapter.findNextStickyHeaderPosition(position);
+        if (next != RecyclerView.NO_POSITION && next < firstPosition + parent.getChildCount()) {
+            RecyclerView.ViewHolder holder = parent.findViewHolderForAdapterPosition(next);
+            if (holder != null) {
+                top = Math.min(top, holder.itemView.getTop() - bitmap.getHeight());
+            }
+        }
+
+        c.drawBitmap(bitmap, parent.getPaddingLeft(), top, null);
+    }
+
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                               int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+            mDirty = true;
+        }
+    }
+
+    /**
+     * 获取HeaderView的图像，需要时重新绘制。
+     *
+     * @param view
+     * @return HeaderView还没有布局时返回null
+     */
+    private Bitmap getBitmap(View view) {
+        if (view != mCachedView) {
+            setCachedView(view);
+        }
+        if (view == null) {
+            return null;
+        }
+        if (!mDirty && mBitmap != null) {
+            return mBitmap;
+        }
+
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+            if (mBitmap != null) {
+                mBitmap.recycle();
+            }
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        mBitmapCanvas.setBitmap(mBitmap);
+        view.draw(mBitmapCanvas);
+        mBitmapCanvas.setBitmap(null);
+        mDirty = false;
+        return mBitmap;
+    }
+
+    private void setCachedView(View view) {
+        if (mCachedView != null) {
+            mCachedView.removeOnLayoutChangeListener(this);
+        }
+        mCachedView = view;
+        mDirty = true;
+        if (mCachedView != null) {
+            mCachedView.addOnLayoutChangeListener(this);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Depiction: 共享RecycledViewPool时，给每个HeaderViewAdapter分配独立的viewType命名空间。
+ * <p>
+ * 同时存在的HeaderViewAdapter不会分到同一个命名空间。HeaderViewAdapter被回收或者关闭共享以后，
+ * 它的命名空间会被重新分配；所有命名空间都在使用时抛出IllegalStateException，而不是跟其他HeaderViewAdapter共用。
+ */
+final class ViewTypeNamespaces {
+
+    //正在使用的命名空间。
+    private static final BitSet sUsed = new BitSet();
+
+    //命名空间到持有它的HeaderViewAdapter的弱引用。
+    private static final Map<Integer, NamespaceReference> sReferences = new HashMap<>();
+
+    //HeaderViewAdapter被回收以后，它的弱引用会被放进这个队列。
+    private static final ReferenceQueue<HeaderViewAdapter> sQueue = new ReferenceQueue<>();
+
+    private ViewTypeNamespaces() {
+    }
+
+    /**
+     * 给adapter分配一个没有被使用的命名空间
+     *
+     * @param adapter
+     * @param count   命名空间的总数
+     * @return 命名空间的下标
+     */
+    static synchronized int acquire(HeaderViewAdapter adapter, int count) {
+        expungeCollected();
+        int namespace = sUsed.nextClearBit(0);
+        if (namespace >= count) {
+            throw new IllegalStateException("All " + count + " shared pool view type namespaces are in use");
+        }
+        sUsed.set(namespace);
+        sReferences.put(namespace, new NamespaceReference(adapter, namespace));
+        return namespace;
+    }
+
+    /**
+     * 释放命名空间，之后可以分配给其他HeaderViewAdapter
+     *
+     * @param namespace
+     */
+    static synchronized void release(int namespace) {
+        NamespaceReference reference = sReferences.remove(namespace);
+        if (reference != null) {
+            reference.clear();
+            sUsed.clear(namespace);
+        }
+    }
+
+    /**
+     * 释放已经被回收的HeaderViewAdapter的命名空间。
+     */
+    private static void expungeCollected() {
+        NamespaceReference reference;
+        while ((reference = (NamespaceReference) sQueue.poll()) != null) {
+            if (sReferences.get(reference.namespace) == reference) {
+                sReferences.remove(reference.namespace);
+                sUsed.clear(reference.namespace);
+            }
+        }
+    }
+
+    private static class NamespaceReference extends WeakReference<HeaderViewAdapter> {
+        final int namespace;
+
+        NamespaceReference(HeaderViewAdapter adapter, int namespace) {
+            super(adapter, sQueue);
+            this.namespace = namespace;
+        }
+    }
+}
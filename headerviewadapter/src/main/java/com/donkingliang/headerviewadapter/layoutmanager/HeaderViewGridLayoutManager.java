@@ -19,6 +19,9 @@ public class HeaderViewGridLayoutManager extends GridLayoutManager {
 
     private HeaderViewAdapter mAdapter;
 
+    //外部设置的SpanSizeLookup，它只作用于普通列表项，接收的position是去掉HeaderView和FooterView后的position。
+    private SpanSizeLookup mSpanSizeLookup;
+
     public HeaderViewGridLayoutManager(Context context, int spanCount, HeaderViewAdapter adapter) {
         super(context, spanCount);
         this.mAdapter = adapter;
@@ -40,7 +43,7 @@ public class HeaderViewGridLayoutManager extends GridLayoutManager {
     }
 
     private void setSpanSizeLookup() {
-        super.setSpanSizeLookup(new SpanSizeLookup() {
+        SpanSizeLookup lookup = new SpanSizeLookup() {
             @Override
             public int getSpanSize(int position) {
                 if (mAdapter != null) {
@@ -49,18 +52,27 @@ public class HeaderViewGridLayoutManager extends GridLayoutManager {
                         return getSpanCount();
                     } else {
                         int adjPosition = position - mAdapter.getHeadersCount();
+                        if (mSpanSizeLookup != null) {
+                            return mSpanSizeLookup.getSpanSize(adjPosition);
+                        }
                         return HeaderViewGridLayoutManager.this.getSpanSize(adjPosition);
                     }
                 } else {
                     return 1;
                 }
             }
-        });
+        };
+        //开启spanIndex和spanGroupIndex的缓存，避免GridLayoutManager每次都从position 0开始计算。
+        //列表数据变化时GridLayoutManager会在onItemsAdded、onItemsRemoved等回调里自动清除缓存。
+        lookup.setSpanIndexCacheEnabled(true);
+        lookup.setSpanGroupIndexCacheEnabled(true);
+        super.setSpanSizeLookup(lookup);
     }
 
     /**
      * 提供这个方法可以使外部改变普通列表项的SpanSize。
      * 这个方法的作用跟{@link SpanSizeLookup#getSpanSize(int)}一样。
+     * 如果通过{@link #setSpanSizeLookup(SpanSizeLookup)}设置了SpanSizeLookup，则这个方法不会被调用。
      *
      * @param position 去掉HeaderView和FooterView后的position。
      * @return
@@ -69,8 +81,26 @@ public class HeaderViewGridLayoutManager extends GridLayoutManager {
         return 1;
     }
 
-    // 不允许外部设置SpanSizeLookup。
+    /**
+     * 设置普通列表项的SpanSizeLookup。HeaderView和FooterView总是占满一行，
+     * 所以传入的SpanSizeLookup接收的是去掉HeaderView和FooterView后的position。
+     *
+     * @param spanSizeLookup 传null则使用{@link #getSpanSize(int)}
+     */
     @Override
     public void setSpanSizeLookup(SpanSizeLookup spanSizeLookup) {
+        mSpanSizeLookup = spanSizeLookup;
+        invalidateSpanCache();
+        requestLayout();
+    }
+
+    /**
+     * 清除spanIndex和spanGroupIndex的缓存。如果普通列表项的SpanSize发生了变化而列表数据没有变化，
+     * 需要调用这个方法。
+     */
+    public void invalidateSpanCache() {
+        SpanSizeLookup lookup = getSpanSizeLookup();
+        lookup.invalidateSpanIndexCache();
+        lookup.invalidateSpanGroupIndexCache();
     }
 }
@@ -1,15 +1,20 @@
 package com.donkingliang.headerviewadapter.view;
 
 import android.content.Context;
+import androidx.annotation.LayoutRes;
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.GridLayoutManager.SpanSizeLookup;
 import androidx.recyclerview.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.View;
 
 import com.donkingliang.headerviewadapter.adapter.HeaderViewAdapter;
+import com.donkingliang.headerviewadapter.adapter.HeaderViewAdapterMetrics;
 import com.donkingliang.headerviewadapter.layoutmanager.HeaderViewGridLayoutManager;
 
+import java.util.List;
+
 /**
  * Depiction: HeaderRecyclerView包装了对{@link HeaderViewAdapter}的所有操作，
  * 让使用者可以直接操作HeaderRecyclerView来给列表添加头部和尾部，而不需要跟HeaderViewAdapter打交道。
@@ -42,21 +47,54 @@ public class HeaderRecyclerView extends RecyclerView {
     public void setLayoutManager(LayoutManager layout) {
         //如果要使用GridLayoutManager的话，只能使用HeaderViewGridLayoutManager。
         if (layout instanceof GridLayoutManager && !(layout instanceof HeaderViewGridLayoutManager)) {
-            super.setLayoutManager(new HeaderViewGridLayoutManager(getContext(),
-                    ((GridLayoutManager) layout).getSpanCount(), mAdapter));
+            GridLayoutManager gridLayoutManager = (GridLayoutManager) layout;
+            HeaderViewGridLayoutManager headerLayoutManager = new HeaderViewGridLayoutManager(getContext(),
+                    gridLayoutManager.getSpanCount(), mAdapter);
+            //保留外部设置的SpanSizeLookup，让它作用于普通列表项。
+            SpanSizeLookup spanSizeLookup = gridLayoutManager.getSpanSizeLookup();
+            if (!(spanSizeLookup instanceof GridLayoutManager.DefaultSpanSizeLookup)) {
+                headerLayoutManager.setSpanSizeLookup(spanSizeLookup);
+            }
+            super.setLayoutManager(headerLayoutManager);
         } else {
             super.setLayoutManager(layout);
         }
     }
 
     private void wrapHeaderAdapter() {
-        mAdapter = new HeaderViewAdapter(super.getAdapter());
+        mAdapter = new HeaderViewAdapter(getContext(), super.getAdapter());
         super.setAdapter(mAdapter);
     }
 
     @Override
     public void setAdapter(Adapter adapter) {
-        mAdapter.setAdapter(adapter);
+        if (adapter != null && adapter.hasStableIds() != mAdapter.hasStableIds()) {
+            //HeaderViewAdapter只有在没有设置给RecyclerView的时候才能修改hasStableIds，
+            //所以先把它从RecyclerView上移除，再重新设置。
+            super.setAdapter(null);
+            mAdapter.setAdapter(adapter);
+            super.setAdapter(mAdapter);
+        } else {
+            mAdapter.setAdapter(adapter);
+        }
+    }
+
+    /**
+     * 替换普通列表的adapter，HeaderView和FooterView以及RecycledViewPool都不受影响。
+     * 如果新的adapter的hasStableIds跟当前的不一样，会像{@link #setAdapter(Adapter)}一样重新设置整个列表。
+     *
+     * @param adapter
+     * @param removeAndRecycleExistingViews
+     * @see HeaderViewAdapter#swapAdapter(Adapter, boolean)
+     */
+    @Override
+    public void swapAdapter(Adapter adapter, boolean removeAndRecycleExistingViews) {
+        if (adapter != null && adapter.hasStableIds() != mAdapter.hasStableIds()) {
+            //hasStableIds需要改变时只能重新设置HeaderViewAdapter，跟setAdapter一样处理。
+            setAdapter(adapter);
+        } else {
+            mAdapter.swapAdapter(adapter, removeAndRecycleExistingViews);
+        }
     }
 
     @Override
@@ -64,6 +102,38 @@ public class HeaderRecyclerView extends RecyclerView {
         return mAdapter.getAdapter();
     }
 
+    /**
+     * 设置缓存的已移出屏幕的ViewHolder的个数，同时告诉HeaderViewAdapter，释放内存清空缓存以后恢复成这个大小。
+     *
+     * @param size
+     * @see HeaderViewAdapter#notifyItemViewCacheSizeChanged(int)
+     */
+    @Override
+    public void setItemViewCacheSize(int size) {
+        super.setItemViewCacheSize(size);
+        mAdapter.notifyItemViewCacheSizeChanged(size);
+    }
+
+    /**
+     * 设置是否跟其他列表共享RecycledViewPool。必须在添加任何HeaderView或FooterView之前调用。
+     *
+     * @param shared
+     * @see HeaderViewAdapter#setRecycledViewPoolShared(boolean)
+     */
+    public void setRecycledViewPoolShared(boolean shared) {
+        mAdapter.setRecycledViewPoolShared(shared);
+    }
+
+    /**
+     * 设置是否在系统内存不足时释放不在屏幕上的HeaderView和FooterView
+     *
+     * @param enabled 默认关闭
+     * @see HeaderViewAdapter#setTrimMemoryEnabled(boolean)
+     */
+    public void setTrimMemoryEnabled(boolean enabled) {
+        mAdapter.setTrimMemoryEnabled(enabled);
+    }
+
     /**
      * 获取HeaderView的个数
      *
@@ -91,6 +161,36 @@ public class HeaderRecyclerView extends RecyclerView {
         mAdapter.addHeaderView(view);
     }
 
+    /**
+     * 在指定位置添加HeaderView
+     *
+     * @param index HeaderView在所有HeaderView中的位置
+     * @param view
+     */
+    public void addHeaderView(int index, View view) {
+        mAdapter.addHeaderView(index, view);
+    }
+
+    /**
+     * 添加一个延迟创建的HeaderView，它在第一次需要显示的时候才被创建。
+     *
+     * @param creator 用于创建HeaderView，同时作为这个HeaderView的标识
+     * @param binder  HeaderView的绑定回调，可以为null
+     */
+    public void addHeaderView(HeaderViewAdapter.FixedViewCreator creator, HeaderViewAdapter.FixedViewBinder binder) {
+        mAdapter.addHeaderView(creator, binder);
+    }
+
+    /**
+     * 在后台线程inflate布局，完成后把它添加到HeaderView的末尾。
+     *
+     * @param layoutId HeaderView的布局id
+     * @param listener 添加完成后在主线程回调，可以为null
+     */
+    public void addHeaderViewAsync(@LayoutRes int layoutId, HeaderViewAdapter.OnFixedViewCreatedListener listener) {
+        mAdapter.addHeaderViewAsync(this, layoutId, listener);
+    }
+
     /**
      * 删除HeaderView
      *
@@ -101,6 +201,16 @@ public class HeaderRecyclerView extends RecyclerView {
         return mAdapter.removeHeaderView(view);
     }
 
+    /**
+     * 删除延迟创建的HeaderView
+     *
+     * @param creator 添加HeaderView时使用的creator
+     * @return 是否删除成功
+     */
+    public boolean removeHeaderView(HeaderViewAdapter.FixedViewCreator creator) {
+        return mAdapter.removeHeaderView(creator);
+    }
+
     /**
      * 添加FooterView
      *
@@ -110,6 +220,95 @@ public class HeaderRecyclerView extends RecyclerView {
         mAdapter.addFooterView(view);
     }
 
+    /**
+     * 在指定位置添加FooterView
+     *
+     * @param index FooterView在所有FooterView中的位置
+     * @param view
+     */
+    public void addFooterView(int index, View view) {
+        mAdapter.addFooterView(index, view);
+    }
+
+    /**
+     * 添加一个延迟创建的FooterView，它在第一次需要显示的时候才被创建。
+     *
+     * @param creator 用于创建FooterView，同时作为这个FooterView的标识
+     * @param binder  FooterView的绑定回调，可以为null
+     */
+    public void addFooterView(HeaderViewAdapter.FixedViewCreator creator, HeaderViewAdapter.FixedViewBinder binder) {
+        mAdapter.addFooterView(creator, binder);
+    }
+
+    /**
+     * 在后台线程inflate布局，完成后把它添加到FooterView的末尾。
+     *
+     * @param layoutId FooterView的布局id
+     * @param listener 添加完成后在主线程回调，可以为null
+     */
+    public void addFooterViewAsync(@LayoutRes int layoutId, HeaderViewAdapter.OnFixedViewCreatedListener listener) {
+        mAdapter.addFooterViewAsync(this, layoutId, listener);
+    }
+
+    /**
+     * 设置FooterView的预创建距离，小于0表示关闭。
+     *
+     * @param distance 距离第一个FooterView的列表项个数
+     * @see HeaderViewAdapter#setFooterPrefetchDistance(int)
+     */
+    public void setFooterPrefetchDistance(int distance) {
+        mAdapter.setFooterPrefetchDistance(distance);
+    }
+
+    /**
+     * 设置加载更多的FooterView
+     *
+     * @param footer   传null表示移除加载更多
+     * @param listener 加载更多的回调
+     * @see HeaderViewAdapter#setLoadMoreFooter(HeaderViewAdapter.LoadMoreFooter, HeaderViewAdapter.OnLoadMoreListener)
+     */
+    public void setLoadMoreFooter(HeaderViewAdapter.LoadMoreFooter footer, HeaderViewAdapter.OnLoadMoreListener listener) {
+        mAdapter.setLoadMoreFooter(footer, listener);
+    }
+
+    /**
+     * 设置加载更多的预加载距离
+     *
+     * @param distance 距离最后一个数据项还有多少项时开始加载
+     * @see HeaderViewAdapter#setLoadMorePrefetchDistance(int)
+     */
+    public void setLoadMorePrefetchDistance(int distance) {
+        mAdapter.setLoadMorePrefetchDistance(distance);
+    }
+
+    /**
+     * 设置加载更多的状态
+     *
+     * @param state
+     * @see HeaderViewAdapter#setLoadMoreState(int)
+     */
+    public void setLoadMoreState(int state) {
+        mAdapter.setLoadMoreState(state);
+    }
+
+    /**
+     * 获取加载更多的状态
+     *
+     * @return
+     */
+    public int getLoadMoreState() {
+        return mAdapter.getLoadMoreState();
+    }
+
+    /**
+     * 加载失败后重新加载
+     *
+     * @see HeaderViewAdapter#retryLoadMore()
+     */
+    public void retryLoadMore() {
+        mAdapter.retryLoadMore();
+    }
+
     /**
      * 删除FooterView
      *
@@ -119,4 +318,205 @@ public class HeaderRecyclerView extends RecyclerView {
     public boolean removeFooterView(View view) {
         return mAdapter.removeFooterView(view);
     }
+
+    /**
+     * 删除延迟创建的FooterView
+     *
+     * @param creator 添加FooterView时使用的creator
+     * @return 是否删除成功
+     */
+    public boolean removeFooterView(HeaderViewAdapter.FixedViewCreator creator) {
+        return mAdapter.removeFooterView(creator);
+    }
+
+    /**
+     * 用views替换当前所有的HeaderView，只对变化的HeaderView发出通知。
+     *
+     * @param views 新的HeaderView，按显示顺序排列，不能重复
+     * @see HeaderViewAdapter#setHeaders(List)
+     */
+    public void setHeaders(List<View> views) {
+        mAdapter.setHeaders(views);
+    }
+
+    /**
+     * 用views替换当前所有的FooterView，只对变化的FooterView发出通知。
+     *
+     * @param views 新的FooterView，按显示顺序排列，不能重复
+     * @see HeaderViewAdapter#setFooters(List)
+     */
+    public void setFooters(List<View> views) {
+        mAdapter.setFooters(views);
+    }
+
+    /**
+     * 显示或隐藏HeaderView，隐藏时仍然保留它的viewType和位置。
+     *
+     * @param view    已经添加的HeaderView
+     * @param visible
+     * @return 是否设置成功
+     * @see HeaderViewAdapter#setHeaderVisible(View, boolean)
+     */
+    public boolean setHeaderVisible(View view, boolean visible) {
+        return mAdapter.setHeaderVisible(view, visible);
+    }
+
+    /**
+     * 显示或隐藏FooterView，隐藏时仍然保留它的viewType和位置。
+     *
+     * @param view    已经添加的FooterView
+     * @param visible
+     * @return 是否设置成功
+     * @see HeaderViewAdapter#setFooterVisible(View, boolean)
+     */
+    public boolean setFooterVisible(View view, boolean visible) {
+        return mAdapter.setFooterVisible(view, visible);
+    }
+
+    /**
+     * 设置HeaderView是否吸顶
+     *
+     * @param view   已经添加的HeaderView
+     * @param sticky 默认不吸顶
+     * @return 是否设置成功
+     * @see HeaderViewAdapter#setHeaderSticky(View, boolean)
+     */
+    public boolean setHeaderSticky(View view, boolean sticky) {
+        return mAdapter.setHeaderSticky(view, sticky);
+    }
+
+    /**
+     * 开始批量更新HeaderView和FooterView，在{@link #endUpdates()}时一起生效并合并通知。
+     *
+     * @see HeaderViewAdapter#beginUpdates()
+     */
+    public void beginUpdates() {
+        mAdapter.beginUpdates();
+    }
+
+    /**
+     * 结束批量更新HeaderView和FooterView。
+     *
+     * @see HeaderViewAdapter#endUpdates()
+     */
+    public void endUpdates() {
+        mAdapter.endUpdates();
+    }
+
+    /**
+     * 设置是否把HeaderView和FooterView的修改合并到下一帧。
+     *
+     * @param coalesce 默认关闭
+     * @see HeaderViewAdapter#setCoalesceUpdatesToFrame(boolean)
+     */
+    public void setCoalesceUpdatesToFrame(boolean coalesce) {
+        mAdapter.setCoalesceUpdatesToFrame(coalesce);
+    }
+
+    /**
+     * 在任意线程提交对HeaderView和FooterView的修改，在主线程的下一帧统一生效。
+     *
+     * @param transaction
+     * @see HeaderViewAdapter#postTransaction(HeaderViewAdapter.Transaction)
+     */
+    public void postTransaction(HeaderViewAdapter.Transaction transaction) {
+        mAdapter.postTransaction(transaction);
+    }
+
+    /**
+     * 在任意线程添加HeaderView，在主线程的下一帧生效。
+     *
+     * @param view
+     */
+    public void postAddHeaderView(View view) {
+        mAdapter.postAddHeaderView(view);
+    }
+
+    /**
+     * 在任意线程删除HeaderView，在主线程的下一帧生效。
+     *
+     * @param view
+     */
+    public void postRemoveHeaderView(View view) {
+        mAdapter.postRemoveHeaderView(view);
+    }
+
+    /**
+     * 在任意线程添加FooterView，在主线程的下一帧生效。
+     *
+     * @param view
+     */
+    public void postAddFooterView(View view) {
+        mAdapter.postAddFooterView(view);
+    }
+
+    /**
+     * 在任意线程删除FooterView，在主线程的下一帧生效。
+     *
+     * @param view
+     */
+    public void postRemoveFooterView(View view) {
+        mAdapter.postRemoveFooterView(view);
+    }
+
+    /**
+     * 给HeaderView或FooterView设置绑定回调，用于局部更新。
+     *
+     * @param view   已经添加的HeaderView或FooterView
+     * @param binder 传null表示移除
+     * @return 是否设置成功
+     */
+    public boolean setFixedViewBinder(View view, HeaderViewAdapter.FixedViewBinder binder) {
+        return mAdapter.setFixedViewBinder(view, binder);
+    }
+
+    /**
+     * 通知HeaderView或FooterView需要局部更新。
+     *
+     * @param view    已经添加的HeaderView或FooterView
+     * @param payload 传给{@link HeaderViewAdapter.FixedViewBinder}的局部更新数据
+     * @return 是否通知成功
+     */
+    public boolean notifyFixedViewChanged(View view, Object payload) {
+        return mAdapter.notifyFixedViewChanged(view, payload);
+    }
+
+    /**
+     * 开启或关闭运行数据统计。
+     *
+     * @param enabled 默认关闭
+     * @see HeaderViewAdapter#setMetricsEnabled(boolean)
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        mAdapter.setMetricsEnabled(enabled);
+    }
+
+    /**
+     * 获取运行数据统计
+     *
+     * @return 没有开启统计时返回null
+     */
+    public HeaderViewAdapterMetrics getMetrics() {
+        return mAdapter.getMetrics();
+    }
+
+    /**
+     * 设置运行数据的实时回调
+     *
+     * @param listener
+     * @see HeaderViewAdapter#setMetricsListener(HeaderViewAdapterMetrics.Listener)
+     */
+    public void setMetricsListener(HeaderViewAdapterMetrics.Listener listener) {
+        mAdapter.setMetricsListener(listener);
+    }
+
+    /**
+     * 设置是否在创建和绑定ViewHolder时添加Trace
+     *
+     * @param enabled 默认关闭
+     * @see HeaderViewAdapter#setTraceEnabled(boolean)
+     */
+    public void setTraceEnabled(boolean enabled) {
+        mAdapter.setTraceEnabled(enabled);
+    }
 }
@@ -0,0 +1,258 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+/**
+ * Depiction: HeaderViewAdapter热点路径的基准测试，覆盖position映射、viewType查找、
+ * viewType分配和数据变化通知的转换。数据量从10到100万，HeaderView从0到50个，另外固定有1个FooterView。
+ * <p>
+ * 默认跳过，运行方式：./gradlew :headerviewadapter:testDebugUnitTest -Pbenchmark --tests *Benchmark
+ * 结果保存在headerviewadapter/build/reports/benchmarks/目录下。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class HeaderViewAdapterBenchmark {
+
+    private static final int[] ITEM_COUNTS = {10, 1_000, 100_000, 1_000_000};
+    private static final int[] HEADER_COUNTS = {0, 1, 10, 50};
+
+    private static MicroBenchmark sBenchmark;
+
+    private Context mContext;
+    private FrameLayout mParent;
+
+    @BeforeClass
+    public static void setUpClass() {
+        sBenchmark = new MicroBenchmark();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        if (MicroBenchmark.isEnabled()) {
+            sBenchmark.writeReport("HeaderViewAdapterBenchmark.txt");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(MicroBenchmark.isEnabled());
+        mContext = ApplicationProvider.getApplicationContext();
+        mParent = new FrameLayout(mContext);
+    }
+
+    @Test
+    public void getItemViewType() {
+        for (final int itemCount : ITEM_COUNTS) {
+            for (final int headerCount : HEADER_COUNTS) {
+                final HeaderViewAdapter adapter = createAdapter(itemCount, headerCount);
+                final int total = adapter.getItemCount();
+                sBenchmark.measure(name("getItemViewType", itemCount, headerCount), new MicroBenchmark.Body() {
+                    @Override
+                    public long run(int iterations) {
+                        long sum = 0;
+                        int position = 0;
+                        for (int i = 0; i < iterations; i++) {
+                            sum += adapter.getItemViewType(position);
+                            if (++position == total) {
+                                position = 0;
+                            }
+                        }
+                        return sum;
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void isHeaderOrFooter() {
+        for (final int itemCount : ITEM_COUNTS) {
+            for (final int headerCount : HEADER_COUNTS) {
+                final HeaderViewAdapter adapter = createAdapter(itemCount, headerCount);
+                final int total = adapter.getItemCount();
+                sBenchmark.measure(name("isHeader/isFooter", itemCount, headerCount), new MicroBenchmark.Body() {
+                    @Override
+                    public long run(int iterations) {
+                        long sum = 0;
+                        int position = 0;
+                        for (int i = 0; i < iterations; i++) {
+                            if (adapter.isHeader(position) || adapter.isFooter(position)) {
+                                sum++;
+                            }
+                            if (++position == total) {
+                                position = 0;
+                            }
+                        }
+                        return sum;
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void onCreateViewHolder() {
+        for (final int headerCount : HEADER_COUNTS) {
+            //数据量不影响viewType的查找，所以只用一个数据量。数据Adapter返回同一个View，只测量viewType的查找和分发。
+            final View itemView = new View(mContext);
+            final TestDataAdapter dataAdapter = new TestDataAdapter(1_000) {
+                @Override
+                protected View createItemView(ViewGroup parent) {
+                    return itemView;
+                }
+            };
+            final HeaderViewAdapter adapter = createAdapter(dataAdapter, headerCount);
+            final int[] viewTypes = new int[adapter.getItemCount()];
+            for (int i = 0; i < viewTypes.length; i++) {
+                viewTypes[i] = adapter.getItemViewType(i);
+            }
+            sBenchmark.measure(name("onCreateViewHolder", 1_000, headerCount), new MicroBenchmark.Body() {
+                @Override
+                public long run(int iterations) {
+                    long sum = 0;
+                    int index = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        RecyclerView.ViewHolder holder = adapter.onCreateViewHolder(mParent, viewTypes[index]);
+                        sum += holder.itemView == itemView ? 1 : 0;
+                        if (++index == viewTypes.length) {
+                            index = 0;
+                        }
+                    }
+                    return sum;
+                }
+            });
+        }
+    }
+
+    @Test
+    public void generateUniqueViewType() {
+        //只创建一个HeaderViewAdapter，不把创建和注册监听的时间算进去。
+        //保留区间用完以后会从头回收没有使用的viewType，所以多轮测试也不会用完。
+        final HeaderViewAdapter adapter = new HeaderViewAdapter(new TestDataAdapter(10));
+        sBenchmark.measure("generateUniqueViewType", new MicroBenchmark.Body() {
+            @Override
+            public long run(int iterations) {
+                long sum = 0;
+                for (int i = 0; i < iterations; i++) {
+                    sum += adapter.generateUniqueViewType();
+                }
+                return sum;
+            }
+        });
+    }
+
+    @Test
+    public void observerTranslation() {
+        for (final int itemCount : ITEM_COUNTS) {
+            for (final int headerCount : HEADER_COUNTS) {
+                final TestDataAdapter dataAdapter = new TestDataAdapter(itemCount);
+                final HeaderViewAdapter adapter = createAdapter(dataAdapter, headerCount);
+                final CountingObserver observer = new CountingObserver();
+                adapter.registerAdapterDataObserver(observer);
+                final int middle = itemCount / 2;
+
+                sBenchmark.measure(name("notifyItemChanged", itemCount, headerCount), new MicroBenchmark.Body() {
+                    @Override
+                    public long run(int iterations) {
+                        for (int i = 0; i < iterations; i++) {
+                            dataAdapter.notifyItemChanged(middle);
+                        }
+                        return observer.positionSum;
+                    }
+                });
+
+                sBenchmark.measure(name("notifyItemInserted/Removed", itemCount, headerCount), new MicroBenchmark.Body() {
+                    @Override
+                    public long run(int iterations) {
+                        for (int i = 0; i < iterations; i++) {
+                            dataAdapter.setItemCount(itemCount + 1);
+                            dataAdapter.notifyItemInserted(middle);
+                            dataAdapter.setItemCount(itemCount);
+                            dataAdapter.notifyItemRemoved(middle);
+                        }
+                        return observer.positionSum;
+                    }
+                });
+
+                sBenchmark.measure(name("notifyItemMoved", itemCount, headerCount), new MicroBenchmark.Body() {
+                    @Override
+                    public long run(int iterations) {
+                        for (int i = 0; i < iterations; i++) {
+                            dataAdapter.notifyItemMoved(0, middle);
+                        }
+                        return observer.positionSum;
+                    }
+                });
+
+                adapter.unregisterAdapterDataObserver(observer);
+            }
+        }
+    }
+
+    private HeaderViewAdapter createAdapter(int itemCount, int headerCount) {
+        return createAdapter(new TestDataAdapter(itemCount), headerCount);
+    }
+
+    private HeaderViewAdapter createAdapter(RecyclerView.Adapter dataAdapter, int headerCount) {
+        HeaderViewAdapter adapter = new HeaderViewAdapter(dataAdapter);
+        for (int i = 0; i < headerCount; i++) {
+            adapter.addHeaderView(new View(mContext));
+        }
+        adapter.addFooterView(new View(mContext));
+        return adapter;
+    }
+
+    private static String name(String method, int itemCount, int headerCount) {
+        return method + " [items=" + itemCount + ", headers=" + headerCount + "]";
+    }
+
+    /**
+     * 接收转换后的通知，累加position，让转换的结果被使用。
+     */
+    private static class CountingObserver extends RecyclerView.AdapterDataObserver {
+
+        long positionSum;
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            positionSum += positionStart;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            positionSum += positionStart;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            positionSum += positionStart;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            positionSum += positionStart;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            positionSum += toPosition;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Depiction: 一个很小的微基准测试工具。先预热，再跑若干轮，取每次操作耗时最少的一轮作为结果。
+ * 结果会打印到标准输出，指定了headerviewadapter.benchmark.output时还会写到该目录下的文件里，
+ * 方便和上一次的结果做对比。
+ * <p>
+ * 只有在运行测试时加上-Pbenchmark参数才会执行，平时的单元测试会跳过。
+ */
+final class MicroBenchmark {
+
+    static final String PROPERTY_ENABLED = "headerviewadapter.benchmark";
+    static final String PROPERTY_OUTPUT = "headerviewadapter.benchmark.output";
+
+    private static final long WARMUP_NANOS = 100_000_000L;
+    private static final long ROUND_NANOS = 50_000_000L;
+    private static final int ROUNDS = 5;
+
+    //保存每次运行的返回值，防止被JIT当成无用代码消除。
+    static volatile long sSink;
+
+    /**
+     * 被测试的代码。执行iterations次操作，并返回一个依赖于操作结果的值。
+     */
+    interface Body {
+        long run(int iterations);
+    }
+
+    private final StringBuilder mReport = new StringBuilder();
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY_ENABLED);
+    }
+
+    /**
+     * 运行一项测试
+     *
+     * @param name 测试的名称，包含测试的参数
+     * @param body 被测试的代码
+     * @return 每次操作的耗时，单位纳秒
+     */
+    double measure(String name, Body body) {
+        int iterations = warmup(body);
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sSink += body.run(iterations);
+            long duration = System.nanoTime() - start;
+            best = Math.min(best, (double) duration / iterations);
+        }
+        String line = String.format(Locale.US, "%-64s %12.2f ns/op", name, best);
+        System.out.println(line);
+        mReport.append(line).append('\n');
+        return best;
+    }
+
+    /**
+     * 预热，同时计算出每一轮需要执行的次数。
+     */
+    private int warmup(Body body) {
+        int iterations = 1;
+        long elapsed = 0;
+        while (true) {
+            long start = System.nanoTime();
+            sSink += body.run(iterations);
+            long duration = Math.max(1, System.nanoTime() - start);
+            elapsed += duration;
+            if (elapsed >= WARMUP_NANOS) {
+                long scaled = (long) iterations * ROUND_NANOS / duration;
+                return (int) Math.max(1, Math.min(Integer.MAX_VALUE, scaled));
+            }
+            if (duration < ROUND_NANOS && iterations < Integer.MAX_VALUE / 2) {
+                iterations *= 2;
+            }
+        }
+    }
+
+    /**
+     * 把结果写到headerviewadapter.benchmark.output指定的目录
+     *
+     * @param fileName 文件名
+     */
+    void writeReport(String fileName) throws IOException {
+        String output = System.getProperty(PROPERTY_OUTPUT);
+        if (output == null || output.isEmpty()) {
+            return;
+        }
+        File dir = new File(output);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can not create " + dir);
+        }
+        try (Writer writer = new FileWriter(new File(dir, fileName))) {
+            writer.write(mReport.toString());
+        }
+    }
+}
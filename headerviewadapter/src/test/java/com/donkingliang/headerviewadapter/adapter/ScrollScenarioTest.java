@@ -0,0 +1,227 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.DefaultItemAnimator;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.donkingliang.headerviewadapter.layoutmanager.HeaderViewGridLayoutManager;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Depiction: 用真实的RecyclerView跑一些常见的操作场景，统计ViewHolder的创建次数、绑定次数、完整绑定(payloads为空)的次数
+ * 和notifyDataSetChanged的次数，
+ * 超出scroll_budget.properties里的预算时测试失败。用来防止局部更新被不小心改成了全部刷新。
+ * <p>
+ * 每个场景都会分别在LinearLayoutManager、HeaderViewGridLayoutManager和StaggeredGridLayoutManager下运行。
+ * 统计从第一次布局完成之后开始。除了名字以Animated结尾的场景，都不使用ItemAnimator。
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ScrollScenarioTest {
+
+    private static final String BUDGET_FILE = "scroll_budget.properties";
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1000;
+    private static final int FIXED_VIEW_HEIGHT = 150;
+    private static final int ITEM_COUNT = 1000;
+    private static final int SPAN_COUNT = 3;
+
+    private static Properties sBudget;
+
+    private final String mLayout;
+
+    private RecyclerView mRecyclerView;
+    private HeaderViewAdapter mAdapter;
+    private TestDataAdapter mDataAdapter;
+    private View mFirstHeader;
+    private View mSecondHeader;
+
+    //HeaderView的完整绑定次数。
+    private int mFixedViewFullBindCount;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0}")
+    public static List<Object[]> layouts() {
+        return Arrays.asList(new Object[]{"linear"}, new Object[]{"grid"}, new Object[]{"staggered"});
+    }
+
+    public ScrollScenarioTest(String layout) {
+        mLayout = layout;
+    }
+
+    @BeforeClass
+    public static void loadBudget() throws IOException {
+        sBudget = new Properties();
+        InputStream in = ScrollScenarioTest.class.getClassLoader().getResourceAsStream(BUDGET_FILE);
+        Assert.assertNotNull("Missing " + BUDGET_FILE, in);
+        try {
+            sBudget.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mDataAdapter = new TestDataAdapter(ITEM_COUNT);
+        mAdapter = new HeaderViewAdapter(mDataAdapter);
+        mFirstHeader = createFixedView(context);
+        mSecondHeader = createFixedView(context);
+        mAdapter.addHeaderView(mFirstHeader);
+        mAdapter.addHeaderView(mSecondHeader);
+        HeaderViewAdapter.FixedViewBinder binder = new HeaderViewAdapter.FixedViewBinder() {
+            @Override
+            public void onBindView(View view, List<Object> payloads) {
+                if (payloads.isEmpty()) {
+                    mFixedViewFullBindCount++;
+                }
+            }
+        };
+        mAdapter.setFixedViewBinder(mFirstHeader, binder);
+        mAdapter.setFixedViewBinder(mSecondHeader, binder);
+        mAdapter.addFooterView(createFixedView(context));
+
+        mRecyclerView = new RecyclerView(context);
+        //不使用ItemAnimator，让每一步的结果都是确定的。
+        mRecyclerView.setItemAnimator(null);
+        mRecyclerView.setLayoutManager(createLayoutManager(context));
+        mRecyclerView.setAdapter(mAdapter);
+        layout();
+
+        mAdapter.setMetricsEnabled(true);
+        mDataAdapter.resetBindCounts();
+        mFixedViewFullBindCount = 0;
+    }
+
+    @Test
+    public void fling() {
+        //用逐帧递减的滑动距离模拟一次fling，总共滑动4650像素。
+        for (int dy = 300; dy > 0; dy -= 10) {
+            mRecyclerView.scrollBy(0, dy);
+        }
+        assertWithinBudget("fling");
+    }
+
+    @Test
+    public void insertAtTop() {
+        mDataAdapter.setItemCount(ITEM_COUNT + 1);
+        mDataAdapter.notifyItemInserted(0);
+        layout();
+        assertWithinBudget("insertAtTop");
+    }
+
+    @Test
+    public void headerToggle() {
+        mAdapter.setHeaderVisible(mSecondHeader, false);
+        layout();
+        mAdapter.setHeaderVisible(mSecondHeader, true);
+        layout();
+        assertWithinBudget("headerToggle");
+    }
+
+    @Test
+    public void adapterSwap() {
+        mDataAdapter = new TestDataAdapter(ITEM_COUNT);
+        mAdapter.swapAdapter(mDataAdapter, false);
+        layout();
+        assertWithinBudget("adapterSwap");
+    }
+
+    @Test
+    public void adapterSwapAnimated() {
+        //使用默认的ItemAnimator时，原地替换Adapter不能为每个可见的列表项再创建一个ViewHolder做变化动画。
+        mRecyclerView.setItemAnimator(new DefaultItemAnimator());
+        mDataAdapter = new TestDataAdapter(ITEM_COUNT);
+        mAdapter.swapAdapter(mDataAdapter, false);
+        layout();
+        assertWithinBudget("adapterSwapAnimated");
+    }
+
+    @Test
+    public void payloadUpdateAnimated() {
+        //局部更新应该直接复用已有的ViewHolder，不能变成完整绑定，也不能创建新的ViewHolder做变化动画。
+        mRecyclerView.setItemAnimator(new DefaultItemAnimator());
+        mAdapter.notifyFixedViewChanged(mFirstHeader, "header");
+        mDataAdapter.notifyItemChanged(3, "item");
+        layout();
+        Assert.assertEquals(1, mDataAdapter.partialBindCount);
+        assertWithinBudget("payloadUpdateAnimated");
+    }
+
+    private RecyclerView.LayoutManager createLayoutManager(Context context) {
+        switch (mLayout) {
+            case "grid":
+                return new HeaderViewGridLayoutManager(context, SPAN_COUNT, mAdapter);
+            case "staggered":
+                return new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL);
+            default:
+                return new LinearLayoutManager(context);
+        }
+    }
+
+    private static View createFixedView(Context context) {
+        View view = new View(context);
+        view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, FIXED_VIEW_HEIGHT));
+        return view;
+    }
+
+    /**
+     * Robolectric不会自动执行布局，每次数据变化之后手动测量和布局一次。
+     */
+    private void layout() {
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void assertWithinBudget(String scenario) {
+        HeaderViewAdapterMetrics metrics = mAdapter.getMetrics();
+        long creates = 0;
+        long binds = 0;
+        for (int i = 0; i < metrics.getViewTypeCount(); i++) {
+            creates += metrics.getViewTypeMetricsAt(i).getCreateCount();
+            binds += metrics.getViewTypeMetricsAt(i).getBindCount();
+        }
+
+        int fullBinds = mDataAdapter.fullBindCount + mFixedViewFullBindCount;
+
+        StringBuilder failures = new StringBuilder();
+        checkBudget(failures, scenario, "creates", creates);
+        checkBudget(failures, scenario, "binds", binds);
+        checkBudget(failures, scenario, "fullBinds", fullBinds);
+        checkBudget(failures, scenario, "fullNotifies", metrics.getFullNotifyCount());
+        if (failures.length() > 0) {
+            Assert.fail("Over budget in " + BUDGET_FILE + " (" + mLayout + "." + scenario + ": creates = " + creates
+                    + ", binds = " + binds + ", fullBinds = " + fullBinds + ", fullNotifies = " + metrics.getFullNotifyCount() + "):" + failures);
+        }
+    }
+
+    private void checkBudget(StringBuilder failures, String scenario, String name, long actual) {
+        String key = mLayout + "." + scenario + "." + name;
+        String budget = sBudget.getProperty(key);
+        Assert.assertNotNull("Missing budget " + key, budget);
+        if (actual > Long.parseLong(budget.trim())) {
+            failures.append("\n  ").append(key).append(" = ").append(actual).append(", budget = ").append(budget);
+        }
+    }
+}
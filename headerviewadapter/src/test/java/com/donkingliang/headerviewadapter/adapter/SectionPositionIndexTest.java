@@ -0,0 +1,118 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Depiction: SectionPositionIndex的单元测试。
+ * <p>
+ * 除了几个固定的例子以外，随机地插入、删除和修改分组，每一步都跟直接遍历List计算出来的结果比较。
+ */
+public class SectionPositionIndexTest {
+
+    @Test
+    public void testEmpty() {
+        SectionPositionIndex index = new SectionPositionIndex();
+        Assert.assertEquals(0, index.getCount());
+        Assert.assertEquals(0, index.getTotal());
+        Assert.assertEquals(0, index.getStart(0));
+    }
+
+    @Test
+    public void testInsertRemoveAndFind() {
+        SectionPositionIndex index = new SectionPositionIndex();
+        index.insert(0, 3);
+        index.insert(1, 5);
+        index.insert(1, 2);
+        //分组的项数：3, 2, 5
+
+        Assert.assertEquals(3, index.getCount());
+        Assert.assertEquals(10, index.getTotal());
+        Assert.assertEquals(0, index.getStart(0));
+        Assert.assertEquals(3, index.getStart(1));
+        Assert.assertEquals(5, index.getStart(2));
+        Assert.assertEquals(10, index.getStart(3));
+        Assert.assertEquals(0, index.findIndex(2));
+        Assert.assertEquals(1, index.findIndex(3));
+        Assert.assertEquals(2, index.findIndex(9));
+
+        index.remove(0);
+        //分组的项数：2, 5
+        Assert.assertEquals(2, index.getCount());
+        Assert.assertEquals(7, index.getTotal());
+        Assert.assertEquals(0, index.findIndex(1));
+        Assert.assertEquals(1, index.findIndex(2));
+    }
+
+    @Test
+    public void testFindIndexSkipsEmptySections() {
+        SectionPositionIndex index = new SectionPositionIndex();
+        index.insert(0, 0);
+        index.insert(1, 2);
+        index.insert(2, 0);
+        index.insert(3, 0);
+        index.insert(4, 1);
+        //分组的项数：0, 2, 0, 0, 1
+
+        Assert.assertEquals(1, index.findIndex(0));
+        Assert.assertEquals(1, index.findIndex(1));
+        Assert.assertEquals(4, index.findIndex(2));
+
+        index.add(4, -1);
+        index.add(2, 4);
+        //分组的项数：0, 2, 4, 0, 0
+        Assert.assertEquals(6, index.getTotal());
+        Assert.assertEquals(0, index.getSize(4));
+        Assert.assertEquals(2, index.findIndex(5));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(20261017L);
+        SectionPositionIndex index = new SectionPositionIndex();
+        List<Integer> sizes = new ArrayList<>();
+
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(3);
+            if (op == 0 || sizes.isEmpty()) {
+                int i = random.nextInt(sizes.size() + 1);
+                int size = random.nextInt(4) == 0 ? 0 : random.nextInt(20);
+                index.insert(i, size);
+                sizes.add(i, size);
+            } else if (op == 1) {
+                int i = random.nextInt(sizes.size());
+                index.remove(i);
+                sizes.remove(i);
+            } else {
+                int i = random.nextInt(sizes.size());
+                int delta = random.nextInt(21) - 10;
+                if (sizes.get(i) + delta < 0) {
+                    delta = -sizes.get(i);
+                }
+                index.add(i, delta);
+                sizes.set(i, sizes.get(i) + delta);
+            }
+            assertMatches(sizes, index);
+        }
+    }
+
+    private static void assertMatches(List<Integer> sizes, SectionPositionIndex index) {
+        Assert.assertEquals(sizes.size(), index.getCount());
+        int start = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            int size = sizes.get(i);
+            Assert.assertEquals(size, index.getSize(i));
+            Assert.assertEquals(start, index.getStart(i));
+            for (int position = start; position < start + size; position++) {
+                Assert.assertEquals(i, index.findIndex(position));
+            }
+            start += size;
+        }
+        Assert.assertEquals(start, index.getTotal());
+        Assert.assertEquals(start, index.getStart(sizes.size()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.donkingliang.headerviewadapter.adapter;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Depiction: 测试用的数据Adapter，只有一种viewType，并分别记录完整绑定和局部更新的次数。
+ */
+class TestDataAdapter extends RecyclerView.Adapter<TestDataAdapter.Holder> {
+
+    static final int ITEM_HEIGHT = 100;
+
+    private int mItemCount;
+
+    //payloads为空的绑定次数和payloads不为空的绑定次数。
+    int fullBindCount;
+    int partialBindCount;
+
+    TestDataAdapter(int itemCount) {
+        mItemCount = itemCount;
+    }
+
+    /**
+     * 修改数据的数量，需要自己调用对应的notify方法。
+     */
+    void setItemCount(int itemCount) {
+        mItemCount = itemCount;
+    }
+
+    void resetBindCounts() {
+        fullBindCount = 0;
+        partialBindCount = 0;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    @Override
+    public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new Holder(createItemView(parent));
+    }
+
+    @Override
+    public void onBindViewHolder(Holder holder, int position) {
+    }
+
+    @Override
+    public void onBindViewHolder(Holder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            fullBindCount++;
+        } else {
+            partialBindCount++;
+        }
+    }
+
+    protected View createItemView(ViewGroup parent) {
+        View view = new View(parent.getContext());
+        view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+        return view;
+    }
+
+    static class Holder extends RecyclerView.ViewHolder {
+        Holder(View itemView) {
+            super(itemView);
+        }
+    }
+}